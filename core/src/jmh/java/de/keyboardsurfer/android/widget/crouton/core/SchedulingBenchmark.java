@@ -0,0 +1,226 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the scheduling operations of the {@link SchedulingQueue} and
+ * {@link DisplaySequencer} at different queue depths. Every operation leaves the queue at its depth.
+ * <p/>
+ * Run with <code>./gradlew :core:jmh</code>, record a baseline with <code>./gradlew :core:jmhBaseline</code>
+ * and compare later runs with it through <code>./gradlew :core:jmhCompare</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchedulingBenchmark {
+  private static final int HOSTS = 4;
+
+  @Param({"1", "10", "100", "1000", "10000", "100000"})
+  int depth;
+
+  private final Object[] hosts = new Object[HOSTS];
+  private Element[] elements;
+  private TestQueue queue;
+  private ManualScheduler scheduler;
+  private DisplaySequencer<Element> sequencer;
+  private Element showing;
+
+  @Setup(Level.Trial)
+  public void createElements() {
+    for (int i = 0; i < HOSTS; i++) {
+      hosts[i] = new Object();
+    }
+    elements = new Element[depth + 1];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = new Element(hosts[i % HOSTS]);
+    }
+    queue = new TestQueue();
+    scheduler = new ManualScheduler();
+    sequencer = new DisplaySequencer<Element>(queue, scheduler, scheduler, new DisplaySequencer.Display<Element>() {
+      @Override
+      public boolean isStale(Element element) {
+        return false;
+      }
+
+      @Override
+      public boolean isPaused(Element element) {
+        return false;
+      }
+
+      @Override
+      public boolean isShowing(Element element) {
+        return element == showing;
+      }
+
+      @Override
+      public void show(Element element) {
+        showing = element;
+        sequencer.onEntered(element, 3000);
+      }
+
+      @Override
+      public void discard(Element element) {
+      }
+
+      @Override
+      public void expire(Element element) {
+        // The expired element queues up again, keeping the depth.
+        showing = null;
+        queue.poll();
+        queue.add(element);
+        sequencer.onExited(element, 500);
+      }
+
+      @Override
+      public void onExitFinished(Element element) {
+      }
+
+      @Override
+      public void onIdle() {
+      }
+    });
+  }
+
+  @Setup(Level.Iteration)
+  public void fillQueue() {
+    sequencer.cancel();
+    showing = null;
+    queue.clear();
+    for (int i = 0; i < depth; i++) {
+      queue.add(elements[i]);
+    }
+    sequencer.dispatch();
+  }
+
+  /** Appends an element at the tail. */
+  @Benchmark
+  public Element enqueue() {
+    queue.add(elements[depth]);
+    final Element added = queue.get(depth);
+    queue.removeAt(depth);
+    return added;
+  }
+
+  /** Looks up and removes an element in the middle of the queue, as a hidden crouton is. */
+  @Benchmark
+  public int cancel() {
+    final Element target = elements[depth / 2];
+    for (int i = 0; i < queue.size(); i++) {
+      if (queue.get(i) == target) {
+        queue.removeAt(i);
+        break;
+      }
+    }
+    queue.add(target);
+    return queue.size();
+  }
+
+  /** Removes the elements of one host, as when its activity is destroyed. */
+  @Benchmark
+  public int clearForHost(RefilledQueue refilled) {
+    return queue.removeAll(hosts[0]);
+  }
+
+  /** Lets the displayed element expire and displays the next one once it has exited. */
+  @Benchmark
+  public Element dispatch() {
+    scheduler.advance(3000);
+    scheduler.advance(500);
+    return showing;
+  }
+
+  /**
+   * Fills the queue again before every invocation of {@link #clearForHost(RefilledQueue)}, which
+   * removes a quarter of it. Kept separate so the other benchmarks don't pay for the per
+   * invocation setup.
+   */
+  @State(Scope.Thread)
+  public static class RefilledQueue {
+    @Setup(Level.Invocation)
+    public void refill(SchedulingBenchmark benchmark) {
+      benchmark.fillQueue();
+    }
+  }
+
+  static final class Element {
+    final Object host;
+
+    Element(Object host) {
+      this.host = host;
+    }
+  }
+
+  static final class TestQueue extends SchedulingQueue<Element> {
+    @Override
+    protected Object hostOf(Element element) {
+      return element.host;
+    }
+  }
+
+  /**
+   * Keeps virtual time and runs the pending task once the time has been advanced past it.
+   * The {@link DisplaySequencer} has at most one task pending.
+   */
+  static final class ManualScheduler implements Clock, DelayedExecutor {
+    private long now;
+    private Runnable task;
+    private long due;
+
+    @Override
+    public long uptimeMillis() {
+      return now;
+    }
+
+    @Override
+    public void execute(Runnable task, long delayMillis) {
+      this.task = task;
+      due = now + delayMillis;
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+      if (task == this.task) {
+        this.task = null;
+      }
+    }
+
+    void advance(long millis) {
+      now += millis;
+      final Runnable pending = task;
+      if ((null != pending) && (due <= now)) {
+        task = null;
+        pending.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+/**
+ * Runs tasks after a delay, on the thread that owns the scheduling state.
+ */
+public interface DelayedExecutor {
+  /**
+   * Runs a task once the provided delay has passed.
+   *
+   * @param task
+   *   The task to run.
+   * @param delayMillis
+   *   The delay in milliseconds, <code>0</code> to run it as soon as possible.
+   */
+  void execute(Runnable task, long delayMillis);
+
+  /**
+   * Removes all pending runs of a task.
+   *
+   * @param task
+   *   The task passed to {@link #execute(Runnable, long)}.
+   */
+  void cancel(Runnable task);
+}
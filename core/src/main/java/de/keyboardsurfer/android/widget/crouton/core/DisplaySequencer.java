@@ -0,0 +1,327 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which queued element is displayed when. Elements are displayed one at a time in queue
+ * order: an element at the head whose host is gone is dropped, one whose host is paused waits until
+ * the host is resumed, the displayed one is timed by a {@link RemovalTimer} once it has entered the
+ * screen, and the next one is only displayed once the previous one has finished leaving it.
+ * <p/>
+ * Attaching, animating and removing elements is left to a {@link Display}. All methods have to be
+ * called on the thread the {@link DelayedExecutor} runs its tasks on.
+ *
+ * @param <T>
+ *   The type of the displayed elements.
+ */
+public final class DisplaySequencer<T> {
+  /** Passed to {@link #onEntered(Object, long)} for an element that stays until it is removed. */
+  public static final long UNTIMED = -1;
+
+  /** The platform side of displaying elements. */
+  public interface Display<T> {
+    /**
+     * @return <code>true</code> if the element can't be displayed anymore, e.g. because its host is gone.
+     */
+    boolean isStale(T element);
+
+    /**
+     * @return <code>true</code> if the host of the element is paused, e.g. because it is stopped.
+     */
+    boolean isPaused(T element);
+
+    /**
+     * @return <code>true</code> if the element is on screen or on its way there.
+     */
+    boolean isShowing(T element);
+
+    /**
+     * Starts displaying the element at the head of the queue. Report with
+     * {@link DisplaySequencer#onEntered(Object, long)} once it is on screen.
+     */
+    void show(T element);
+
+    /**
+     * An element has been dropped from the queue, because it was stale at its head or its host was
+     * removed with {@link DisplaySequencer#removeAll(Object)}.
+     */
+    void discard(T element);
+
+    /**
+     * The display time of the element is over. Remove it and report with
+     * {@link DisplaySequencer#onExited(Object, long)}.
+     */
+    void expire(T element);
+
+    /** The element has finished leaving the screen, the next one is about to be displayed. */
+    void onExitFinished(T element);
+
+    /** The queue has run empty. */
+    void onIdle();
+  }
+
+  private final SchedulingQueue<T> queue;
+  private final Display<T> display;
+  private final RemovalTimer<T> removalTimer;
+  private final NextTask nextTask = new NextTask();
+  private Clock clock;
+  private DelayedExecutor executor;
+
+  public DisplaySequencer(SchedulingQueue<T> queue, Clock clock, DelayedExecutor executor, final Display<T> display) {
+    this.queue = queue;
+    this.clock = clock;
+    this.executor = executor;
+    this.display = display;
+    removalTimer = new RemovalTimer<T>(clock, executor, new RemovalTimer.Listener<T>() {
+      @Override
+      public void onExpired(T element) {
+        display.expire(element);
+      }
+    });
+  }
+
+  /**
+   * Displays the element at the head of the queue, dropping stale ones on the way, unless its host
+   * is paused or it is showing already.
+   */
+  public void dispatch() {
+    T head = queue.peek();
+    while ((null != head) && display.isStale(head)) {
+      queue.poll();
+      display.discard(head);
+      head = queue.peek();
+    }
+    if (null == head) {
+      display.onIdle();
+      return;
+    }
+    if (display.isPaused(head) || display.isShowing(head) || nextTask.isPending()) {
+      // A paused host dispatches again once resumed, a showing element once it has exited and a
+      // leaving element once it has left the screen.
+      return;
+    }
+    display.show(head);
+  }
+
+  /**
+   * Starts timing an element that has entered the screen.
+   *
+   * @param element
+   *   The displayed element.
+   * @param displayMillis
+   *   The time until it expires, counted from now, or {@link #UNTIMED}.
+   */
+  public void onEntered(T element, long displayMillis) {
+    if (UNTIMED != displayMillis) {
+      removalTimer.schedule(element, displayMillis);
+    }
+  }
+
+  /**
+   * Displays the next element once the removed one has finished leaving the screen.
+   *
+   * @param element
+   *   The element that has been removed.
+   * @param exitMillis
+   *   The time it takes to leave the screen.
+   */
+  public void onExited(T element, long exitMillis) {
+    removalTimer.cancel(element);
+    nextTask.schedule(element, exitMillis);
+  }
+
+  /**
+   * Displays the next element right away once the removed element is known to have left the
+   * screen, before the time given to {@link #onExited(Object, long)} has run out. Does nothing if
+   * the element is not the one leaving.
+   *
+   * @param element
+   *   The element that has left the screen.
+   */
+  public void onExitEnded(T element) {
+    nextTask.runNow(element);
+  }
+
+  /**
+   * Restarts timing a displayed element, e.g. after its content changed.
+   */
+  public void resetDuration(T element, long displayMillis) {
+    if (removalTimer.isScheduled(element)) {
+      removalTimer.schedule(element, displayMillis);
+    }
+  }
+
+  /**
+   * Stops timing a displayed element whose host has been paused.
+   *
+   * @return <code>true</code> if the element was being timed.
+   */
+  public boolean pause(T element) {
+    return removalTimer.pause(element);
+  }
+
+  /**
+   * Continues timing the paused element of a host that has been resumed, or displays the head of
+   * the queue if it belongs to the host.
+   *
+   * @return The element whose timing has been continued or <code>null</code>.
+   */
+  public T resume(Object host) {
+    final T paused = removalTimer.getPaused();
+    if ((null != paused) && (host == queue.hostOf(paused))) {
+      removalTimer.resume();
+      return paused;
+    }
+    final T head = queue.peek();
+    if ((null != head) && (host == queue.hostOf(head)) && !display.isShowing(head)) {
+      dispatch();
+    }
+    return null;
+  }
+
+  /**
+   * Removes all queued elements of a host and discards them, then displays the next element if the
+   * head was removed. Only the elements of the host are discarded, a host without queued elements
+   * costs a lookup.
+   *
+   * @return The number of removed elements.
+   */
+  public int removeAll(Object host) {
+    if (0 == queue.count(host)) {
+      return 0;
+    }
+    final T head = queue.peek();
+    final List<T> removed = new ArrayList<T>(queue.count(host));
+    queue.removeAll(host, removed);
+    for (int i = 0; i < removed.size(); i++) {
+      display.discard(removed.get(i));
+    }
+    if (!removed.isEmpty() && (head != queue.peek())) {
+      // elements of other hosts don't need to wait for the removed one
+      dispatch();
+    }
+    return removed.size();
+  }
+
+  /** Stops timing an element and drops the pending display that follows it. */
+  public void cancel(T element) {
+    nextTask.cancel(element);
+    removalTimer.cancel(element);
+  }
+
+  /** Stops all timing and drops the pending display of the next element. */
+  public void cancel() {
+    nextTask.cancel();
+    removalTimer.cancel();
+  }
+
+  /**
+   * @return <code>true</code> if the display time of the element is running.
+   */
+  public boolean isTimed(T element) {
+    return removalTimer.isScheduled(element);
+  }
+
+  /**
+   * @return The element whose timing is paused or <code>null</code>.
+   */
+  public T getPaused() {
+    return removalTimer.getPaused();
+  }
+
+  /**
+   * @return The display time the paused element had left.
+   */
+  public long getPausedRemainingMillis() {
+    return removalTimer.getPausedRemainingMillis();
+  }
+
+  /**
+   * Switches to another clock and executor, moving pending timings over with the time they have left.
+   */
+  public void setScheduler(Clock clock, DelayedExecutor executor) {
+    final Clock previousClock = this.clock;
+    final DelayedExecutor previousExecutor = this.executor;
+    this.clock = clock;
+    this.executor = executor;
+    nextTask.moveFrom(previousClock, previousExecutor);
+    removalTimer.setScheduler(clock, executor);
+  }
+
+  /**
+   * Waits for a removed element to leave the screen before the next one is displayed. Only one
+   * element leaves at a time, so a single instance is reused.
+   */
+  private final class NextTask implements Runnable {
+    private T element;
+    private long dueUptimeMillis;
+
+    void schedule(T element, long delayMillis) {
+      if (null != this.element) {
+        executor.cancel(this);
+      }
+      this.element = element;
+      dueUptimeMillis = clock.uptimeMillis() + delayMillis;
+      executor.execute(this, delayMillis);
+    }
+
+    void cancel(T element) {
+      if ((null != element) && (element == this.element)) {
+        cancel();
+      }
+    }
+
+    void cancel() {
+      if (null != element) {
+        executor.cancel(this);
+        element = null;
+      }
+    }
+
+    boolean isPending() {
+      return null != element;
+    }
+
+    void runNow(T element) {
+      if ((null != element) && (element == this.element)) {
+        executor.cancel(this);
+        run();
+      }
+    }
+
+    void moveFrom(Clock previousClock, DelayedExecutor previousExecutor) {
+      if (null != element) {
+        previousExecutor.cancel(this);
+        final T pending = element;
+        element = null;
+        schedule(pending, Math.max(0, dueUptimeMillis - previousClock.uptimeMillis()));
+      }
+    }
+
+    @Override
+    public void run() {
+      final T exited = element;
+      element = null;
+      if (null != exited) {
+        display.onExitFinished(exited);
+        dispatch();
+      }
+    }
+  }
+}
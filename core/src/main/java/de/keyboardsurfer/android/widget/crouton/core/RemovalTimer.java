@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+/**
+ * Times how long the displayed element stays on screen.
+ * <p/>
+ * Only one element is displayed at a time, so the timer tracks a single running element plus one
+ * that has been paused, e.g. while its host is stopped, together with the time it had left.
+ *
+ * @param <T>
+ *   The type of the displayed elements.
+ */
+public final class RemovalTimer<T> {
+  /** Receives the elements whose display time has run out. */
+  public interface Listener<T> {
+    void onExpired(T element);
+  }
+
+  private Clock clock;
+  private DelayedExecutor executor;
+  private final Listener<T> listener;
+  private final Runnable expiry = new Runnable() {
+    @Override
+    public void run() {
+      final T expired = element;
+      element = null;
+      if (null != expired) {
+        listener.onExpired(expired);
+      }
+    }
+  };
+  private T element;
+  private long dueUptimeMillis;
+  private T pausedElement;
+  private long pausedRemainingMillis;
+
+  public RemovalTimer(Clock clock, DelayedExecutor executor, Listener<T> listener) {
+    this.clock = clock;
+    this.executor = executor;
+    this.listener = listener;
+  }
+
+  /**
+   * Starts timing an element, replacing the one that is currently timed.
+   *
+   * @param element
+   *   The displayed element.
+   * @param delayMillis
+   *   The time until it expires.
+   */
+  public void schedule(T element, long delayMillis) {
+    if (null != this.element) {
+      executor.cancel(expiry);
+    }
+    this.element = element;
+    dueUptimeMillis = clock.uptimeMillis() + delayMillis;
+    executor.execute(expiry, delayMillis);
+  }
+
+  /**
+   * Switches to another clock and executor, moving a running timer over with the time it has left.
+   */
+  public void setScheduler(Clock clock, DelayedExecutor executor) {
+    final T running = element;
+    long remainingMillis = 0;
+    if (null != running) {
+      remainingMillis = Math.max(0, dueUptimeMillis - this.clock.uptimeMillis());
+      this.executor.cancel(expiry);
+      element = null;
+    }
+    this.clock = clock;
+    this.executor = executor;
+    if (null != running) {
+      schedule(running, remainingMillis);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the provided element is being timed.
+   */
+  public boolean isScheduled(T element) {
+    return (null != element) && (element == this.element);
+  }
+
+  /**
+   * Stops timing an element and remembers the time it had left.
+   *
+   * @return <code>true</code> if the element was being timed.
+   */
+  public boolean pause(T element) {
+    if (!isScheduled(element)) {
+      return false;
+    }
+    pausedElement = element;
+    pausedRemainingMillis = Math.max(0, dueUptimeMillis - clock.uptimeMillis());
+    executor.cancel(expiry);
+    this.element = null;
+    return true;
+  }
+
+  /**
+   * @return The element paused by {@link #pause(Object)} or <code>null</code>.
+   */
+  public T getPaused() {
+    return pausedElement;
+  }
+
+  /**
+   * @return The time the paused element had left.
+   */
+  public long getPausedRemainingMillis() {
+    return pausedRemainingMillis;
+  }
+
+  /**
+   * Continues timing the paused element with the time it had left.
+   *
+   * @return The resumed element or <code>null</code> if none was paused.
+   */
+  public T resume() {
+    final T resumed = pausedElement;
+    if (null != resumed) {
+      pausedElement = null;
+      schedule(resumed, pausedRemainingMillis);
+    }
+    return resumed;
+  }
+
+  /** Stops timing the provided element, whether it is running or paused. */
+  public void cancel(T element) {
+    if (isScheduled(element)) {
+      executor.cancel(expiry);
+      this.element = null;
+    }
+    if ((null != element) && (element == pausedElement)) {
+      pausedElement = null;
+    }
+  }
+
+  /** Stops timing all elements. */
+  public void cancel() {
+    if (null != element) {
+      executor.cancel(expiry);
+      element = null;
+    }
+    pausedElement = null;
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An array backed ring buffer holding the elements waiting to be displayed.
+ * <p/>
+ * Unlike a linked queue no node is allocated per element; the backing array only grows when more
+ * elements are queued than ever before.
+ * <p/>
+ * The number of queued elements is kept per host, so {@link #removeAll(Object, List)} returns right
+ * away for a host without queued elements and stops looking at hosts after the last match. Hosts
+ * are only referenced weakly by the counts.
+ *
+ * @param <T>
+ *   The type of the queued elements.
+ */
+public abstract class SchedulingQueue<T> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Object[] elements = new Object[INITIAL_CAPACITY];
+  private int head;
+  private int size;
+  private final Map<Object, int[]> hostCounts = new WeakHashMap<Object, int[]>();
+
+  /**
+   * @return The host an element is displayed in, used by {@link #removeAll(Object, List)}. It must
+   * not change while the element is queued, other than becoming <code>null</code>.
+   */
+  protected abstract Object hostOf(T element);
+
+  /** Appends an element to the end of the queue. */
+  public synchronized void add(T element) {
+    if (size == elements.length) {
+      grow();
+    }
+    elements[(head + size) & (elements.length - 1)] = element;
+    size++;
+    countHost(element, 1);
+  }
+
+  /** Appends all provided elements in order. */
+  public synchronized void addAll(List<? extends T> elements) {
+    for (int i = 0; i < elements.size(); i++) {
+      add(elements.get(i));
+    }
+  }
+
+  /**
+   * @return The first element of the queue or <code>null</code> if it is empty.
+   */
+  public synchronized T peek() {
+    return 0 == size ? null : elementAt(head);
+  }
+
+  /**
+   * Removes the first element of the queue.
+   *
+   * @return The removed element or <code>null</code> if the queue is empty.
+   */
+  public synchronized T poll() {
+    if (0 == size) {
+      return null;
+    }
+    final T element = elementAt(head);
+    elements[head] = null;
+    head = (head + 1) & (elements.length - 1);
+    size--;
+    countHost(element, -1);
+    return element;
+  }
+
+  /**
+   * @return The element at the provided position, counted from the head of the queue, or
+   * <code>null</code> if there is none.
+   */
+  public synchronized T get(int index) {
+    return index < size ? elementAt((head + index) & (elements.length - 1)) : null;
+  }
+
+  /**
+   * @return <code>true</code> if the provided element is queued.
+   */
+  public synchronized boolean contains(T element) {
+    if (null == element) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (elements[(head + i) & (elements.length - 1)] == element) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes the element at the provided position, moving all following ones forward.
+   *
+   * @param index
+   *   The position counted from the head of the queue.
+   */
+  public synchronized void removeAt(int index) {
+    final int mask = elements.length - 1;
+    countHost(elementAt((head + index) & mask), -1);
+    for (int i = index; i < size - 1; i++) {
+      elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+    }
+    elements[(head + size - 1) & mask] = null;
+    size--;
+  }
+
+  /**
+   * @return The number of queued elements of the provided host.
+   */
+  public synchronized int count(Object host) {
+    final int[] count = (null != host) ? hostCounts.get(host) : null;
+    return (null != count) ? count[0] : 0;
+  }
+
+  /**
+   * Removes all elements of the provided host, keeping the order of the remaining ones.
+   *
+   * @return The number of removed elements.
+   */
+  public int removeAll(Object host) {
+    return removeAll(host, null);
+  }
+
+  /**
+   * Removes all elements of the provided host, keeping the order of the remaining ones. Elements
+   * behind the last match are moved forward without looking at their host.
+   *
+   * @param removed
+   *   Receives the removed elements in queue order, may be <code>null</code>.
+   *
+   * @return The number of removed elements.
+   */
+  public synchronized int removeAll(Object host, List<? super T> removed) {
+    final int[] count = (null != host) ? hostCounts.get(host) : null;
+    if ((null == count) || (0 == count[0])) {
+      return 0;
+    }
+    final int mask = elements.length - 1;
+    int remaining = count[0];
+    int kept = 0;
+    int i = 0;
+    for (; (i < size) && (0 < remaining); i++) {
+      final T element = elementAt((head + i) & mask);
+      if (host == hostOf(element)) {
+        remaining--;
+        if (null != removed) {
+          removed.add(element);
+        }
+      } else {
+        elements[(head + kept) & mask] = element;
+        kept++;
+      }
+    }
+    for (; i < size; i++) {
+      elements[(head + kept) & mask] = elements[(head + i) & mask];
+      kept++;
+    }
+    for (i = kept; i < size; i++) {
+      elements[(head + i) & mask] = null;
+    }
+    final int removedCount = size - kept;
+    size = kept;
+    count[0] = 0;
+    return removedCount;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  public synchronized boolean isEmpty() {
+    return 0 == size;
+  }
+
+  /** Removes all elements. */
+  public synchronized void clear() {
+    for (int i = 0; i < size; i++) {
+      elements[(head + i) & (elements.length - 1)] = null;
+    }
+    head = 0;
+    size = 0;
+    hostCounts.clear();
+  }
+
+  private void countHost(T element, int delta) {
+    final Object host = hostOf(element);
+    if (null == host) {
+      return;
+    }
+    int[] count = hostCounts.get(host);
+    if (null == count) {
+      if (delta < 0) {
+        return;
+      }
+      // kept while the host lives, so a host only allocates once
+      count = new int[1];
+      hostCounts.put(host, count);
+    }
+    count[0] = Math.max(0, count[0] + delta);
+  }
+
+  @SuppressWarnings("unchecked")
+  private T elementAt(int position) {
+    return (T) elements[position];
+  }
+
+  private void grow() {
+    final Object[] grown = new Object[elements.length * 2];
+    for (int i = 0; i < size; i++) {
+      grown[i] = elements[(head + i) & (elements.length - 1)];
+    }
+    elements = grown;
+    head = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    final StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(elements[(head + i) & (elements.length - 1)]);
+    }
+    return builder.append(']').toString();
+  }
+}
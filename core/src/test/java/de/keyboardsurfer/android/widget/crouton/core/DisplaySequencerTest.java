@@ -0,0 +1,331 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class DisplaySequencerTest {
+  private static final long DISPLAY_MILLIS = 3000;
+  private static final long EXIT_MILLIS = 500;
+
+  private final Object hostA = new Object();
+  private final Object hostB = new Object();
+  private final TestElement first = new TestElement("first", hostA);
+  private final TestElement second = new TestElement("second", hostB);
+  private TestElement.Queue queue;
+  private TestScheduler scheduler;
+  private RecordingDisplay display;
+  private DisplaySequencer<TestElement> sequencer;
+
+  @Before
+  public void setUp() {
+    queue = new TestElement.Queue();
+    scheduler = new TestScheduler();
+    display = new RecordingDisplay();
+    sequencer = new DisplaySequencer<TestElement>(queue, scheduler, scheduler, display);
+  }
+
+  @Test
+  public void displaysTheNextElementOnceThePreviousOneHasExited() {
+    queue.addAll(Arrays.asList(first, second));
+
+    sequencer.dispatch();
+    assertEquals(Arrays.asList("show first"), display.events);
+
+    scheduler.advanceBy(DISPLAY_MILLIS);
+    assertEquals(Arrays.asList("show first", "expire first"), display.events);
+
+    scheduler.advanceBy(EXIT_MILLIS - 1);
+    assertEquals(2, display.events.size());
+
+    scheduler.advanceBy(1);
+    assertEquals(Arrays.asList("show first", "expire first", "exited first", "show second"), display.events);
+  }
+
+  @Test
+  public void displaysTheNextElementAsSoonAsTheExitHasEnded() {
+    queue.addAll(Arrays.asList(first, second));
+    sequencer.dispatch();
+    scheduler.advanceBy(DISPLAY_MILLIS);
+
+    sequencer.onExitEnded(second);
+    assertEquals(Arrays.asList("show first", "expire first"), display.events);
+
+    sequencer.onExitEnded(first);
+    assertEquals(Arrays.asList("show first", "expire first", "exited first", "show second"), display.events);
+    scheduler.advanceBy(EXIT_MILLIS);
+    assertEquals(4, display.events.size());
+  }
+
+  @Test
+  public void waitsForTheExitBeforeDisplayingAnAddedElement() {
+    queue.add(first);
+    sequencer.dispatch();
+    scheduler.advanceBy(DISPLAY_MILLIS);
+
+    queue.add(second);
+    sequencer.dispatch();
+    assertEquals(Arrays.asList("show first", "expire first"), display.events);
+
+    scheduler.advanceBy(EXIT_MILLIS);
+    assertEquals(Arrays.asList("show first", "expire first", "exited first", "show second"), display.events);
+  }
+
+  @Test
+  public void dropsStaleElementsAtTheHead() {
+    queue.addAll(Arrays.asList(first, second));
+    display.stale.add(first);
+
+    sequencer.dispatch();
+
+    assertEquals(Arrays.asList("discard first", "show second"), display.events);
+    assertSame(second, queue.peek());
+  }
+
+  @Test
+  public void reportsAnEmptyQueue() {
+    sequencer.dispatch();
+
+    assertEquals(Arrays.asList("idle"), display.events);
+  }
+
+  @Test
+  public void doesNotDisplayTheShowingElementAgain() {
+    queue.add(first);
+
+    sequencer.dispatch();
+    sequencer.dispatch();
+
+    assertEquals(Arrays.asList("show first"), display.events);
+  }
+
+  @Test
+  public void waitsForAPausedHostToBeResumed() {
+    queue.add(first);
+    display.pausedHosts.add(hostA);
+
+    sequencer.dispatch();
+    assertTrue(display.events.isEmpty());
+
+    display.pausedHosts.remove(hostA);
+    assertNull(sequencer.resume(hostB));
+    assertTrue(display.events.isEmpty());
+
+    assertNull(sequencer.resume(hostA));
+    assertEquals(Arrays.asList("show first"), display.events);
+  }
+
+  @Test
+  public void continuesTimingWithTheRemainingTimeWhenResumed() {
+    queue.add(first);
+    sequencer.dispatch();
+    scheduler.advanceBy(1000);
+
+    assertTrue(sequencer.pause(first));
+    assertSame(first, sequencer.getPaused());
+    assertEquals(DISPLAY_MILLIS - 1000, sequencer.getPausedRemainingMillis());
+    scheduler.advanceBy(60000);
+    assertEquals(Arrays.asList("show first"), display.events);
+
+    assertSame(first, sequencer.resume(hostA));
+    scheduler.advanceBy(DISPLAY_MILLIS - 1000);
+    assertEquals(Arrays.asList("show first", "expire first"), display.events);
+  }
+
+  @Test
+  public void keepsUntimedElementsUntilTheyAreRemoved() {
+    display.displayMillis = DisplaySequencer.UNTIMED;
+    queue.add(first);
+
+    sequencer.dispatch();
+    scheduler.advanceBy(60 * 60 * 1000);
+
+    assertEquals(Arrays.asList("show first"), display.events);
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void resetDurationRestartsTheTiming() {
+    queue.add(first);
+    sequencer.dispatch();
+    scheduler.advanceBy(2000);
+
+    sequencer.resetDuration(first, DISPLAY_MILLIS);
+    scheduler.advanceBy(2000);
+    assertTrue(sequencer.isTimed(first));
+
+    scheduler.advanceBy(1000);
+    assertEquals(Arrays.asList("show first", "expire first"), display.events);
+  }
+
+  @Test
+  public void displaysTheNextHostWhenTheHeadIsRemoved() {
+    queue.addAll(Arrays.asList(first, second));
+    display.pausedHosts.add(hostA);
+    sequencer.dispatch();
+
+    assertEquals(1, sequencer.removeAll(hostA));
+
+    assertEquals(Arrays.asList("discard first", "show second"), display.events);
+  }
+
+  @Test
+  public void cancelDropsTheDisplayOfTheNextElement() {
+    queue.addAll(Arrays.asList(first, second));
+    sequencer.dispatch();
+    scheduler.advanceBy(DISPLAY_MILLIS);
+
+    sequencer.cancel(first);
+    scheduler.advanceBy(EXIT_MILLIS);
+
+    assertEquals(Arrays.asList("show first", "expire first"), display.events);
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void setSchedulerMovesPendingDelays() {
+    queue.addAll(Arrays.asList(first, second));
+    sequencer.dispatch();
+    scheduler.advanceBy(DISPLAY_MILLIS);
+    scheduler.advanceBy(100);
+    final TestScheduler other = new TestScheduler();
+
+    sequencer.setScheduler(other, other);
+
+    assertEquals(0, scheduler.getPendingCount());
+    other.advanceBy(EXIT_MILLIS - 100);
+    assertEquals(Arrays.asList("show first", "expire first", "exited first", "show second"), display.events);
+    other.advanceBy(DISPLAY_MILLIS);
+    assertEquals("expire second", display.events.get(display.events.size() - 1));
+  }
+
+  @Test
+  public void steadyStateDisplayDoesNotAllocate() {
+    final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+    display.recording = false;
+    display.requeue = true;
+    for (int i = 0; i < 8; i++) {
+      queue.add(new TestElement("element" + i, (0 == i % 2) ? hostA : hostB));
+    }
+    sequencer.dispatch();
+    cycle(10000);
+    display.shown = 0;
+
+    final long threadId = Thread.currentThread().getId();
+    final long before = allocations.getThreadAllocatedBytes(threadId);
+    cycle(10000);
+    final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+    assertEquals(10000, display.shown);
+    // leaves room for the bookkeeping of the measurement itself
+    assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+  }
+
+  private void cycle(int count) {
+    for (int i = 0; i < count; i++) {
+      scheduler.advanceBy(DISPLAY_MILLIS);
+      scheduler.advanceBy(EXIT_MILLIS);
+    }
+  }
+
+  /**
+   * Shows and removes elements right away and records what it has been asked to do.
+   */
+  private final class RecordingDisplay implements DisplaySequencer.Display<TestElement> {
+    final List<String> events = new ArrayList<String>();
+    final Set<TestElement> stale = new HashSet<TestElement>();
+    final Set<Object> pausedHosts = new HashSet<Object>();
+    long displayMillis = DISPLAY_MILLIS;
+    boolean recording = true;
+    /** Queues expired elements again, keeping the queue at its size. */
+    boolean requeue;
+    int shown;
+    TestElement showing;
+
+    @Override
+    public boolean isStale(TestElement element) {
+      return stale.contains(element);
+    }
+
+    @Override
+    public boolean isPaused(TestElement element) {
+      return pausedHosts.contains(element.host);
+    }
+
+    @Override
+    public boolean isShowing(TestElement element) {
+      return element == showing;
+    }
+
+    @Override
+    public void show(TestElement element) {
+      record("show ", element);
+      showing = element;
+      shown++;
+      sequencer.onEntered(element, displayMillis);
+    }
+
+    @Override
+    public void discard(TestElement element) {
+      record("discard ", element);
+    }
+
+    @Override
+    public void expire(TestElement element) {
+      record("expire ", element);
+      showing = null;
+      queue.poll();
+      if (requeue) {
+        queue.add(element);
+      }
+      sequencer.onExited(element, EXIT_MILLIS);
+    }
+
+    @Override
+    public void onExitFinished(TestElement element) {
+      record("exited ", element);
+    }
+
+    @Override
+    public void onIdle() {
+      if (recording) {
+        events.add("idle");
+      }
+    }
+
+    private void record(String event, TestElement element) {
+      if (recording) {
+        events.add(event + element);
+      }
+    }
+  }
+}
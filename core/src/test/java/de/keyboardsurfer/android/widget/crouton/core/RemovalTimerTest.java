@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RemovalTimerTest {
+  private final TestElement first = new TestElement("first", new Object());
+  private final TestElement second = new TestElement("second", new Object());
+  private final List<TestElement> expired = new ArrayList<TestElement>();
+  private TestScheduler scheduler;
+  private RemovalTimer<TestElement> timer;
+
+  @Before
+  public void setUp() {
+    scheduler = new TestScheduler();
+    timer = new RemovalTimer<TestElement>(scheduler, scheduler, new RemovalTimer.Listener<TestElement>() {
+      @Override
+      public void onExpired(TestElement element) {
+        expired.add(element);
+      }
+    });
+  }
+
+  @Test
+  public void expiresAfterTheDelay() {
+    timer.schedule(first, 3000);
+
+    scheduler.advanceBy(2999);
+    assertTrue(expired.isEmpty());
+    assertTrue(timer.isScheduled(first));
+
+    scheduler.advanceBy(1);
+    assertEquals(1, expired.size());
+    assertSame(first, expired.get(0));
+    assertFalse(timer.isScheduled(first));
+  }
+
+  @Test
+  public void scheduleReplacesTheTimedElement() {
+    timer.schedule(first, 1000);
+    timer.schedule(second, 2000);
+
+    scheduler.advanceBy(2000);
+
+    assertEquals(1, expired.size());
+    assertSame(second, expired.get(0));
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void resumeContinuesWithTheRemainingTime() {
+    timer.schedule(first, 3000);
+    scheduler.advanceBy(1000);
+
+    assertTrue(timer.pause(first));
+    assertSame(first, timer.getPaused());
+    assertEquals(2000, timer.getPausedRemainingMillis());
+
+    // paused time doesn't count
+    scheduler.advanceBy(10000);
+    assertTrue(expired.isEmpty());
+
+    assertSame(first, timer.resume());
+    assertNull(timer.getPaused());
+    scheduler.advanceBy(1999);
+    assertTrue(expired.isEmpty());
+    scheduler.advanceBy(1);
+    assertSame(first, expired.get(0));
+  }
+
+  @Test
+  public void pauseIgnoresElementsThatAreNotTimed() {
+    timer.schedule(first, 3000);
+
+    assertFalse(timer.pause(second));
+    assertNull(timer.getPaused());
+    assertNull(timer.resume());
+  }
+
+  @Test
+  public void cancelOnlyStopsTheProvidedElement() {
+    timer.schedule(first, 3000);
+
+    timer.cancel(second);
+    assertTrue(timer.isScheduled(first));
+
+    timer.cancel(first);
+    scheduler.advanceBy(3000);
+    assertTrue(expired.isEmpty());
+  }
+
+  @Test
+  public void cancelDropsThePausedElement() {
+    timer.schedule(first, 3000);
+    timer.pause(first);
+
+    timer.cancel();
+
+    assertNull(timer.getPaused());
+    assertNull(timer.resume());
+  }
+
+  @Test
+  public void setSchedulerMovesTheRemainingTime() {
+    timer.schedule(first, 3000);
+    scheduler.advanceBy(1000);
+    final TestScheduler other = new TestScheduler();
+
+    timer.setScheduler(other, other);
+
+    assertEquals(0, scheduler.getPendingCount());
+    other.advanceBy(1999);
+    assertTrue(expired.isEmpty());
+    other.advanceBy(1);
+    assertSame(first, expired.get(0));
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SchedulingQueueTest {
+  private final Object hostA = new Object();
+  private final Object hostB = new Object();
+  private TestElement.Queue queue;
+
+  @Before
+  public void setUp() {
+    queue = new TestElement.Queue();
+  }
+
+  @Test
+  public void pollsInOrderOfAdding() {
+    final TestElement first = new TestElement("first", hostA);
+    final TestElement second = new TestElement("second", hostA);
+    queue.add(first);
+    queue.add(second);
+
+    assertSame(first, queue.peek());
+    assertSame(first, queue.poll());
+    assertSame(second, queue.poll());
+    assertNull(queue.poll());
+    assertNull(queue.peek());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void keepsOrderWhenGrowingAfterWrappingAround() {
+    // Move the head into the middle of the backing array, so the elements wrap around before it grows.
+    for (int i = 0; i < 10; i++) {
+      queue.add(new TestElement("skipped" + i, hostA));
+      queue.poll();
+    }
+    final TestElement[] elements = new TestElement[40];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = new TestElement("element" + i, hostA);
+      queue.add(elements[i]);
+    }
+
+    assertEquals(elements.length, queue.size());
+    for (int i = 0; i < elements.length; i++) {
+      assertSame(elements[i], queue.get(i));
+    }
+    for (TestElement element : elements) {
+      assertSame(element, queue.poll());
+    }
+  }
+
+  @Test
+  public void getReturnsNullPastTheEnd() {
+    queue.add(new TestElement("only", hostA));
+
+    assertNull(queue.get(1));
+  }
+
+  @Test
+  public void removeAtMovesFollowingElementsForward() {
+    final TestElement first = new TestElement("first", hostA);
+    final TestElement second = new TestElement("second", hostA);
+    final TestElement third = new TestElement("third", hostA);
+    queue.addAll(Arrays.asList(first, second, third));
+
+    queue.removeAt(1);
+
+    assertEquals(2, queue.size());
+    assertSame(first, queue.get(0));
+    assertSame(third, queue.get(1));
+    assertFalse(queue.contains(second));
+  }
+
+  @Test
+  public void removeAllKeepsTheOrderOfOtherHosts() {
+    final TestElement a1 = new TestElement("a1", hostA);
+    final TestElement b1 = new TestElement("b1", hostB);
+    final TestElement a2 = new TestElement("a2", hostA);
+    final TestElement b2 = new TestElement("b2", hostB);
+    queue.addAll(Arrays.asList(a1, b1, a2, b2));
+
+    assertEquals(2, queue.removeAll(hostA));
+
+    assertEquals(2, queue.size());
+    assertSame(b1, queue.poll());
+    assertSame(b2, queue.poll());
+    assertEquals(0, queue.removeAll(hostA));
+  }
+
+  @Test
+  public void removeAllStopsLookingAtHostsAfterTheLastMatch() {
+    final TestElement b1 = new TestElement("b1", hostB);
+    final TestElement a1 = new TestElement("a1", hostA);
+    final TestElement a2 = new TestElement("a2", hostA);
+    final TestElement a3 = new TestElement("a3", hostA);
+    queue.addAll(Arrays.asList(b1, a1, a2, a3));
+    final List<TestElement> removed = new ArrayList<TestElement>();
+    queue.hostLookups = 0;
+
+    assertEquals(1, queue.removeAll(hostB, removed));
+
+    assertEquals(1, queue.hostLookups);
+    assertEquals(Arrays.asList(b1), removed);
+    assertEquals(3, queue.size());
+    assertSame(a1, queue.get(0));
+    assertSame(a3, queue.get(2));
+  }
+
+  @Test
+  public void removeAllSkipsHostsWithoutElements() {
+    queue.addAll(Arrays.asList(new TestElement("a1", hostA), new TestElement("a2", hostA)));
+    queue.hostLookups = 0;
+
+    assertEquals(0, queue.removeAll(hostB));
+
+    assertEquals(0, queue.hostLookups);
+    assertEquals(2, queue.size());
+  }
+
+  @Test
+  public void countFollowsTheQueuedElementsOfAHost() {
+    final TestElement a1 = new TestElement("a1", hostA);
+    final TestElement b1 = new TestElement("b1", hostB);
+    final TestElement a2 = new TestElement("a2", hostA);
+    queue.addAll(Arrays.asList(a1, b1, a2));
+    assertEquals(2, queue.count(hostA));
+    assertEquals(1, queue.count(hostB));
+
+    queue.poll();
+    queue.removeAt(1);
+
+    assertEquals(0, queue.count(hostA));
+    assertEquals(1, queue.count(hostB));
+    queue.clear();
+    assertEquals(0, queue.count(hostB));
+  }
+
+  @Test
+  public void containsComparesIdentity() {
+    final TestElement element = new TestElement("element", hostA);
+    queue.add(element);
+
+    assertTrue(queue.contains(element));
+    assertFalse(queue.contains(new TestElement("element", hostA)));
+    assertFalse(queue.contains(null));
+  }
+
+  @Test
+  public void clearRemovesAllElements() {
+    queue.add(new TestElement("first", hostA));
+    queue.add(new TestElement("second", hostB));
+
+    queue.clear();
+
+    assertEquals(0, queue.size());
+    assertNull(queue.peek());
+    assertEquals("[]", queue.toString());
+  }
+}
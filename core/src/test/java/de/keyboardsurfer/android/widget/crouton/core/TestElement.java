@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+/** An element displayed in a host, for the tests of the queue and the sequencing. */
+final class TestElement {
+  final String name;
+  final Object host;
+
+  TestElement(String name, Object host) {
+    this.name = name;
+    this.host = host;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  static final class Queue extends SchedulingQueue<TestElement> {
+    int hostLookups;
+
+    @Override
+    protected Object hostOf(TestElement element) {
+      hostLookups++;
+      return element.host;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.core;
+
+/**
+ * Keeps virtual time for the tests and runs the tasks that become due when it is advanced, in the
+ * order of their due time. Doesn't allocate once it has held as many tasks at a time as needed.
+ */
+final class TestScheduler implements Clock, DelayedExecutor {
+  private Runnable[] tasks = new Runnable[4];
+  private long[] dueMillis = new long[4];
+  private int size;
+  private long now;
+
+  @Override
+  public long uptimeMillis() {
+    return now;
+  }
+
+  @Override
+  public void execute(Runnable task, long delayMillis) {
+    if (size == tasks.length) {
+      final Runnable[] grownTasks = new Runnable[size * 2];
+      final long[] grownDueMillis = new long[size * 2];
+      System.arraycopy(tasks, 0, grownTasks, 0, size);
+      System.arraycopy(dueMillis, 0, grownDueMillis, 0, size);
+      tasks = grownTasks;
+      dueMillis = grownDueMillis;
+    }
+    final long due = now + Math.max(0, delayMillis);
+    // Tasks due at the same time keep the order they were scheduled in.
+    int index = size;
+    while ((index > 0) && (dueMillis[index - 1] > due)) {
+      tasks[index] = tasks[index - 1];
+      dueMillis[index] = dueMillis[index - 1];
+      index--;
+    }
+    tasks[index] = task;
+    dueMillis[index] = due;
+    size++;
+  }
+
+  @Override
+  public void cancel(Runnable task) {
+    for (int i = size - 1; i >= 0; i--) {
+      if (tasks[i] == task) {
+        removeAt(i);
+      }
+    }
+  }
+
+  /** Moves the time forward, running all tasks that become due on the way. */
+  void advanceBy(long millis) {
+    final long target = now + millis;
+    while ((size > 0) && (dueMillis[0] <= target)) {
+      final Runnable task = tasks[0];
+      now = dueMillis[0];
+      removeAt(0);
+      task.run();
+    }
+    now = target;
+  }
+
+  int getPendingCount() {
+    return size;
+  }
+
+  private void removeAt(int index) {
+    System.arraycopy(tasks, index + 1, tasks, index, size - index - 1);
+    System.arraycopy(dueMillis, index + 1, dueMillis, index, size - index - 1);
+    size--;
+    tasks[size] = null;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Announces the text of displayed {@link Crouton}s to accessibility services.
+ * <p/>
+ * The {@link AccessibilityManager} is looked up once and its enabled state is tracked through a
+ * listener. The first announcement is sent right away, further ones arriving within a short window
+ * are merged into a single event that is sent when the window closes.
+ */
+@TargetApi(14)
+final class AccessibilityAnnouncer implements AccessibilityManager.AccessibilityStateChangeListener, Runnable {
+  /** Time after an announcement during which following ones are merged. */
+  private static final long MERGE_WINDOW_MILLIS = 500;
+
+  private CroutonScheduler scheduler;
+  private final List<CharSequence> pendingTexts = new ArrayList<CharSequence>();
+  private AccessibilityManager accessibilityManager;
+  private boolean enabled;
+  private String packageName;
+  private long mergeWindowEnd;
+  private boolean flushScheduled;
+
+  AccessibilityAnnouncer(CroutonScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  /** Switches to another {@link CroutonScheduler}, moving a pending announcement over. */
+  void setScheduler(CroutonScheduler scheduler) {
+    if (flushScheduled) {
+      this.scheduler.cancel(this);
+      scheduler.execute(this, Math.max(0, mergeWindowEnd - this.scheduler.uptimeMillis()));
+    }
+    // The merge window is kept relative to the new clock.
+    mergeWindowEnd += scheduler.uptimeMillis() - this.scheduler.uptimeMillis();
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Announces a text or merges it with the announcements pending in the current window.
+   *
+   * @param context
+   *   Used to get the {@link AccessibilityManager} the first time.
+   * @param text
+   *   The text to announce.
+   */
+  void announce(Context context, CharSequence text) {
+    if ((null == context) || (null == text)) {
+      return;
+    }
+    if (null == accessibilityManager) {
+      final Context applicationContext = context.getApplicationContext();
+      accessibilityManager = (AccessibilityManager) applicationContext.getSystemService(Context.ACCESSIBILITY_SERVICE);
+      if (null == accessibilityManager) {
+        return;
+      }
+      packageName = applicationContext.getPackageName();
+      enabled = accessibilityManager.isEnabled();
+      accessibilityManager.addAccessibilityStateChangeListener(this);
+    }
+    if (!enabled) {
+      return;
+    }
+
+    final long now = scheduler.uptimeMillis();
+    if (pendingTexts.isEmpty() && now >= mergeWindowEnd) {
+      pendingTexts.add(text);
+      run();
+      return;
+    }
+    pendingTexts.add(text);
+    if (!flushScheduled) {
+      flushScheduled = true;
+      scheduler.execute(this, mergeWindowEnd - now);
+    }
+  }
+
+  @Override
+  public void onAccessibilityStateChanged(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      scheduler.cancel(this);
+      flushScheduled = false;
+      pendingTexts.clear();
+    }
+  }
+
+  /** Sends all pending texts as a single announcement. */
+  @Override
+  public void run() {
+    flushScheduled = false;
+    if (pendingTexts.isEmpty()) {
+      return;
+    }
+    mergeWindowEnd = scheduler.uptimeMillis() + MERGE_WINDOW_MILLIS;
+
+    // Prior to SDK 16, announcements could only be made through FOCUSED
+    // events. Jelly Bean (SDK 16) added support for speaking text verbatim
+    // using the ANNOUNCEMENT event type.
+    final int eventType;
+    if (Build.VERSION.SDK_INT < 16) {
+      eventType = AccessibilityEvent.TYPE_VIEW_FOCUSED;
+    } else {
+      eventType = AccessibilityEvent.TYPE_ANNOUNCEMENT;
+    }
+
+    // Construct an accessibility event with the minimum recommended
+    // attributes. An event without a class name or package may be dropped.
+    final AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+    // added one by one, addAll() would copy the pending texts into an array first
+    final List<CharSequence> eventTexts = event.getText();
+    for (int i = 0; i < pendingTexts.size(); i++) {
+      eventTexts.add(pendingTexts.get(i));
+    }
+    event.setClassName(Manager.class.getName());
+    event.setPackageName(packageName);
+    pendingTexts.clear();
+
+    // Sends the event directly through the accessibility manager. If your
+    // application only targets SDK 14+, you should just call
+    // getParent().requestSendAccessibilityEvent(this, event);
+    accessibilityManager.sendAccessibilityEvent(event);
+  }
+}
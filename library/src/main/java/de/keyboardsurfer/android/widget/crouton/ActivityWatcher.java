@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows the lifecycle of all {@link Activity}s of an {@link Application} so {@link Crouton}s
+ * don't need to be cleared manually.
+ * <p/>
+ * The {@link Crouton}s of a destroyed {@link Activity} are dropped, while an {@link Activity} is
+ * stopped its {@link Crouton}s are neither attached nor timed.
+ */
+@TargetApi(14)
+final class ActivityWatcher implements Application.ActivityLifecycleCallbacks {
+  private final Manager manager;
+  private final List<Activity> stoppedActivities = new ArrayList<Activity>(2);
+
+  ActivityWatcher(Manager manager) {
+    this.manager = manager;
+  }
+
+  /**
+   * @return <code>true</code> if the provided {@link Activity} has been stopped and not started again.
+   */
+  boolean isStopped(Activity activity) {
+    return stoppedActivities.contains(activity);
+  }
+
+  @Override
+  public void onActivityStarted(Activity activity) {
+    if (stoppedActivities.remove(activity)) {
+      manager.resumeCroutonsForActivity(activity);
+    }
+  }
+
+  @Override
+  public void onActivityStopped(Activity activity) {
+    if (!stoppedActivities.contains(activity)) {
+      stoppedActivities.add(activity);
+      manager.pauseCroutonsForActivity(activity);
+    }
+  }
+
+  @Override
+  public void onActivityDestroyed(Activity activity) {
+    stoppedActivities.remove(activity);
+    manager.clearCroutonsForActivity(activity);
+  }
+
+  @Override
+  public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    /* no-op */
+  }
+
+  @Override
+  public void onActivityResumed(Activity activity) {
+    /* no-op */
+  }
+
+  @Override
+  public void onActivityPaused(Activity activity) {
+    /* no-op */
+  }
+
+  @Override
+  public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    /* no-op */
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LongSparseArray;
+import android.util.SparseBooleanArray;
+import android.util.TypedValue;
+
+/**
+ * Caches the decoded bitmaps of {@link Style}s with a background drawable, so they are not decoded
+ * again for every {@link Crouton}. Bitmaps are keyed by resource id and display density.
+ * <p/>
+ * The keys are kept unboxed and the entries are linked in the order they were last used, so a
+ * cached bitmap is returned without allocating. Only used on the main thread.
+ */
+final class BackgroundCache {
+  private static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+  private static final int REDUCED_MAX_BYTES = DEFAULT_MAX_BYTES / 4;
+
+  private static BackgroundCache INSTANCE;
+
+  private final LongSparseArray<Entry> bitmaps = new LongSparseArray<Entry>();
+  private final SparseBooleanArray plainBitmaps = new SparseBooleanArray();
+  private final TypedValue typedValue = new TypedValue();
+  /** The most recently used entry. */
+  private Entry head;
+  /** The least recently used entry, evicted first. */
+  private Entry tail;
+  private int size;
+  private int maxBytes;
+
+  private BackgroundCache(int maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return The instance shared by all {@link Crouton}s.
+   */
+  static synchronized BackgroundCache getInstance() {
+    if (null == INSTANCE) {
+      INSTANCE = new BackgroundCache(DEFAULT_MAX_BYTES);
+    }
+
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the decoded bitmap of a drawable resource, decoding and caching it if needed.
+   *
+   * @return The bitmap or <code>null</code> if the resource could not be decoded.
+   */
+  Bitmap get(Resources resources, int resourceId) {
+    final long key = ((long) resourceId << 32) | resources.getDisplayMetrics().densityDpi;
+    final Entry cached = bitmaps.get(key);
+    if (null != cached) {
+      unlink(cached);
+      linkFirst(cached);
+      return cached.bitmap;
+    }
+    final Bitmap bitmap;
+    final boolean traced = CroutonTrace.beginSection(CroutonTrace.DECODE_BACKGROUND);
+    try {
+      bitmap = BitmapFactory.decodeResource(resources, resourceId);
+    } finally {
+      CroutonTrace.endSection(traced);
+    }
+    if (null != bitmap) {
+      final Entry entry = new Entry(key, bitmap);
+      bitmaps.put(key, entry);
+      linkFirst(entry);
+      size += entry.bytes;
+      trimToSize(maxBytes);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Tells whether a drawable resource is a plain bitmap file, as opposed to a nine-patch, a color or
+   * a drawable defined in XML. The answer is cached per resource id.
+   *
+   * @return <code>true</code> if the resource is a plain bitmap.
+   */
+  boolean isPlainBitmap(Resources resources, int resourceId) {
+    final int index = plainBitmaps.indexOfKey(resourceId);
+    if (index >= 0) {
+      return plainBitmaps.valueAt(index);
+    }
+    resources.getValue(resourceId, typedValue, true);
+    final String file = (null != typedValue.string) ? typedValue.string.toString() : null;
+    final boolean plain = (TypedValue.TYPE_STRING == typedValue.type) && (null != file)
+        && !file.endsWith(".xml") && !file.endsWith(".9.png");
+    plainBitmaps.put(resourceId, plain);
+    return plain;
+  }
+
+  /**
+   * Switches between the default and the smaller size of the {@link DeviceProfile#REDUCED} profile.
+   */
+  void setReduced(boolean reduced) {
+    maxBytes = reduced ? REDUCED_MAX_BYTES : DEFAULT_MAX_BYTES;
+    trimToSize(maxBytes);
+  }
+
+  /**
+   * Halves the cache while the app is running low on memory and drops it once memory is critically
+   * low or the UI is hidden.
+   * Views that are showing keep their bitmaps.
+   *
+   * @param level
+   *   The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+   *
+   * @return The number of bytes freed.
+   */
+  long trim(int level) {
+    final int before = size;
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      trimToSize(0);
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      trimToSize(before / 2);
+    }
+    return before - size;
+  }
+
+  /** Evicts the least recently used bitmaps until the cached ones take at most the provided bytes. */
+  private void trimToSize(int maxSize) {
+    while ((size > maxSize) && (null != tail)) {
+      final Entry evicted = tail;
+      unlink(evicted);
+      bitmaps.remove(evicted.key);
+      size -= evicted.bytes;
+    }
+  }
+
+  private void linkFirst(Entry entry) {
+    entry.next = head;
+    if (null != head) {
+      head.previous = entry;
+    }
+    head = entry;
+    if (null == tail) {
+      tail = entry;
+    }
+  }
+
+  private void unlink(Entry entry) {
+    if (null != entry.previous) {
+      entry.previous.next = entry.next;
+    } else {
+      head = entry.next;
+    }
+    if (null != entry.next) {
+      entry.next.previous = entry.previous;
+    } else {
+      tail = entry.previous;
+    }
+    entry.previous = null;
+    entry.next = null;
+  }
+
+  /** A cached bitmap along with its key and size, linked in the order of use. */
+  private static final class Entry {
+    final long key;
+    final Bitmap bitmap;
+    /** The size when it was cached, so the total stays consistent if the bitmap is recycled. */
+    final int bytes;
+    Entry previous;
+    Entry next;
+
+    Entry(long key, Bitmap bitmap) {
+      this.key = key;
+      this.bitmap = bitmap;
+      this.bytes = bitmap.getByteCount();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs tasks at the start of the first frame after their delay, so work like attaching the next
+ * {@link Crouton} lines up with the frames drawn by the app instead of landing in the middle of one.
+ * <p/>
+ * Has to be created on the main thread. A {@link Choreographer.FrameCallback} is created once
+ * per distinct task and reused afterwards.
+ */
+@TargetApi(16)
+public final class ChoreographerScheduler implements CroutonScheduler {
+  private final Choreographer choreographer = Choreographer.getInstance();
+  private final Map<Runnable, FrameTask> frameTasks = new HashMap<Runnable, FrameTask>();
+
+  @Override
+  public long uptimeMillis() {
+    return SystemClock.uptimeMillis();
+  }
+
+  @Override
+  public void execute(Runnable task, long delayMillis) {
+    FrameTask frameTask = frameTasks.get(task);
+    if (null == frameTask) {
+      frameTask = new FrameTask(task);
+      frameTasks.put(task, frameTask);
+    }
+    choreographer.postFrameCallbackDelayed(frameTask, delayMillis);
+  }
+
+  @Override
+  public void cancel(Runnable task) {
+    // The frame callback is kept for the next time the task is executed.
+    final FrameTask frameTask = frameTasks.get(task);
+    if (null != frameTask) {
+      choreographer.removeFrameCallback(frameTask);
+    }
+  }
+
+  @Override
+  public void postFrameCallback(Choreographer.FrameCallback callback) {
+    choreographer.postFrameCallback(callback);
+  }
+
+  @Override
+  public void removeFrameCallback(Choreographer.FrameCallback callback) {
+    choreographer.removeFrameCallback(callback);
+  }
+
+  private static final class FrameTask implements Choreographer.FrameCallback {
+    private final Runnable task;
+
+    FrameTask(Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      task.run();
+    }
+  }
+}
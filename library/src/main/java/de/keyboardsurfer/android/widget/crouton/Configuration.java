@@ -38,6 +38,9 @@ public class Configuration {
   /** The default long display duration of a {@link Crouton}. */
   public static final int DURATION_LONG = 5000;
 
+  /** The default maximum time the display of a {@link Crouton} may be deferred while the UI is busy. */
+  public static final int MAX_DEFERRAL_DEFAULT = 1000;
+
   /** The default {@link Configuration} of a {@link Crouton}. */
   public static final Configuration DEFAULT;
 
@@ -51,11 +54,14 @@ public class Configuration {
   final int inAnimationResId;
   /** The resource id for the out animation. */
   final int outAnimationResId;
+  /** The maximum time in milliseconds the display may be deferred while the UI is busy. */
+  final int maxDeferralInMilliseconds;
 
   private Configuration(Builder builder) {
     this.durationInMilliseconds = builder.durationInMilliseconds;
     this.inAnimationResId = builder.inAnimationResId;
     this.outAnimationResId = builder.outAnimationResId;
+    this.maxDeferralInMilliseconds = builder.maxDeferralInMilliseconds;
   }
 
   /** Creates a {@link Builder} to build a {@link Configuration} upon. */
@@ -63,6 +69,7 @@ public class Configuration {
     private int durationInMilliseconds = DURATION_SHORT;
     private int inAnimationResId = 0;
     private int outAnimationResId = 0;
+    private int maxDeferralInMilliseconds = MAX_DEFERRAL_DEFAULT;
 
     /**
      * Set the durationInMilliseconds option of the {@link Crouton}.
@@ -109,6 +116,23 @@ public class Configuration {
       return this;
     }
 
+    /**
+     * Set the maximum time the display of the {@link Crouton} may be deferred while frames
+     * run over budget or the user is scrolling. Only applies if deferral has been enabled via
+     * {@link Crouton#setJankAwareDeferralEnabled(boolean)}.
+     *
+     * @param maxDeferral
+     *   The maximum deferral in milliseconds. Use <code>0</code> for
+     *   important {@link Crouton}s that should never be held back.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setMaxDeferral(final int maxDeferral) {
+      this.maxDeferralInMilliseconds = maxDeferral;
+
+      return this;
+    }
+
     /**
      * Builds the {@link Configuration}.
      *
@@ -125,6 +149,7 @@ public class Configuration {
       "durationInMilliseconds=" + durationInMilliseconds +
       ", inAnimationResId=" + inAnimationResId +
       ", outAnimationResId=" + outAnimationResId +
+      ", maxDeferralInMilliseconds=" + maxDeferralInMilliseconds +
       '}';
   }
 }
\ No newline at end of file
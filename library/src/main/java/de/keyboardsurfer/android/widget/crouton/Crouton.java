@@ -16,17 +16,21 @@
 
 package de.keyboardsurfer.android.widget.crouton;
 
+import android.annotation.TargetApi;
 import android.app.Activity;
+import android.app.Application;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Shader;
 import android.graphics.Typeface;
 import android.graphics.drawable.BitmapDrawable;
+import android.os.Build;
 import android.text.Spannable;
 import android.text.SpannableString;
+import android.text.TextUtils;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.Gravity;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -38,6 +42,12 @@ import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /*
  * Based on an article by Cyril Mottier (http://android.cyrilmottier.com/?p=773) <br>
  */
@@ -49,28 +59,41 @@ import android.widget.TextView;
  * <p/>
  * <b>Important: </b>
  * Call {@link Crouton#clearCroutonsForActivity(Activity)} within
- * {@link Activity#onDestroy()} to avoid {@link Context} leaks.
+ * {@link Activity#onDestroy()} to avoid {@link Context} leaks, or call
+ * {@link Crouton#install(Application)} once to have it done automatically.
  */
 public final class Crouton {
 
     private static final String NULL_PARAMETERS_ARE_NOT_ACCEPTED = "Null parameters are not accepted";
+    private static final AtomicInteger ID_SOURCE = new AtomicInteger();
     private static final int IMAGE_ID = 0x100;
     private static final int TEXT_ID = 0x101;
 
-    private final CharSequence text;
-    private final Style style;
+    private CharSequence text;
+    private Style style;
     private Configuration configuration = null;
     private final View customView;
+    private final int id = ID_SOURCE.incrementAndGet();
 
     private OnClickListener onClickListener;
 
-    private Activity activity;
-    private ViewGroup viewGroup;
+    private WeakReference<Activity> activityReference;
+    private WeakReference<ViewGroup> viewGroupReference;
+    private final Throwable creationTrace = LeakWatcher.getInstance().captureCreationTrace();
     private FrameLayout croutonView;
     private Animation inAnimation;
     private Animation outAnimation;
     private LifecycleCallback lifecycleCallback = null;
 
+    private CharSequence pendingText;
+    private Style pendingStyle;
+    private boolean pendingResetDuration;
+    private Choreographer.FrameCallback updateCallback;
+    private boolean updatePosted;
+    private long enqueuedNanos;
+    private int leakCheckPass;
+    private volatile TextPrecomputer.PreparedText preparedText;
+
     /**
      * Creates the {@link Crouton}.
      *
@@ -84,8 +107,7 @@ public final class Crouton {
             throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
         }
 
-        this.activity = activity;
-        this.viewGroup = null;
+        this.activityReference = new WeakReference<Activity>(activity);
         this.text = text;
         this.style = style;
         this.customView = null;
@@ -104,10 +126,10 @@ public final class Crouton {
             throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
         }
 
-        this.activity = activity;
+        this.activityReference = new WeakReference<Activity>(activity);
         this.text = text;
         this.style = style;
-        this.viewGroup = viewGroup;
+        this.viewGroupReference = (null != viewGroup) ? new WeakReference<ViewGroup>(viewGroup) : null;
         this.customView = null;
     }
 
@@ -123,8 +145,7 @@ public final class Crouton {
             throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
         }
 
-        this.activity = activity;
-        this.viewGroup = null;
+        this.activityReference = new WeakReference<Activity>(activity);
         this.customView = customView;
         this.style = new Style.Builder().build();
         this.text = null;
@@ -155,9 +176,9 @@ public final class Crouton {
             throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
         }
 
-        this.activity = activity;
+        this.activityReference = new WeakReference<Activity>(activity);
         this.customView = customView;
-        this.viewGroup = viewGroup;
+        this.viewGroupReference = (null != viewGroup) ? new WeakReference<ViewGroup>(viewGroup) : null;
         this.style = new Style.Builder().build();
         this.text = null;
         this.configuration = configuration;
@@ -462,6 +483,232 @@ public final class Crouton {
         Manager.getInstance().clearCroutonsForActivity(activity);
     }
 
+    /**
+     * Follows the lifecycle of all {@link Activity}s of the provided {@link Application}, so
+     * {@link #clearCroutonsForActivity(Activity)} no longer needs to be called manually.
+     * <p/>
+     * The {@link Crouton}s of a destroyed {@link Activity} are cleared. While an {@link Activity}
+     * is stopped, its {@link Crouton}s are not attached and the display time of a shown one is
+     * paused until the {@link Activity} is started again. The caches held by {@link Crouton}s are
+     * trimmed whenever the system asks the app to release memory, see {@link #trimMemory(int)}.
+     * Call once, e.g. from {@link Application#onCreate()}.
+     *
+     * @param application The {@link Application} to follow the {@link Activity}s of.
+     */
+    public static void install(Application application) {
+        if (null == application) {
+            throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+        }
+        Manager.getInstance().install(application);
+    }
+
+    /**
+     * Reports how {@link Crouton}s are displayed to the provided {@link MetricsSink}: queue depth,
+     * latency from queuing to display, view build and layout times, missed frames and the number of
+     * dropped and coalesced {@link Crouton}s and of those removed because their layout timed out.
+     * Use a {@link CroutonMetrics} to keep them in histograms that can be snapshotted. Nothing is
+     * measured by default.
+     *
+     * @param metricsSink The {@link MetricsSink} to report to or <code>null</code> to stop reporting.
+     */
+    public static void setMetricsSink(MetricsSink metricsSink) {
+        Manager.getInstance().setMetricsSink(metricsSink);
+    }
+
+    /**
+     * Emits named sections for systrace and Perfetto around queuing, building, measuring,
+     * attaching, animating and removing {@link Crouton}s, around background decoding and typeface
+     * loading, plus an async slice per {@link Crouton} from queuing to removal. Only has an effect
+     * as of API 18, disabled by default. While disabled tracing costs no more than a flag check.
+     *
+     * @param enabled <code>true</code> to emit trace sections.
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        Manager.getInstance().setTracingEnabled(enabled);
+    }
+
+    /**
+     * Overrides the {@link DeviceProfile} that is selected automatically. With
+     * {@link DeviceProfile#REDUCED} the default animations are shortened, tiled and plain bitmap
+     * backgrounds are replaced by the background color and caches are kept smaller. By default
+     * {@link DeviceProfile#AUTOMATIC} selects it on low RAM devices and while battery saver is on.
+     *
+     * @param profile The {@link DeviceProfile} to use.
+     */
+    public static void setDeviceProfile(DeviceProfile profile) {
+        if (null == profile) {
+            throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+        }
+        Manager.getInstance().setDeviceProfile(profile);
+    }
+
+    /**
+     * Releases memory held by the caches of {@link Crouton}: loaded typefaces, decoded background
+     * bitmaps, measured heights and the default animations. The higher the level, the more is
+     * released. Called automatically after {@link #install(Application)}.
+     *
+     * @param level One of the <code>TRIM_MEMORY_</code> levels of {@link android.content.ComponentCallbacks2}.
+     * @return The number of bytes freed per cache, keyed by the name of the cache. Sizes of
+     * typefaces and animations are estimates.
+     */
+    public static Map<String, Long> trimMemory(int level) {
+        return Manager.getInstance().trimMemory(level);
+    }
+
+    /**
+     * Reports {@link Crouton}s whose {@link Activity} has been garbage collected or destroyed while
+     * they were still queued, as warnings in the log along with the stack trace of where they have
+     * been created. Meant for debug builds, as it captures a stack trace for every {@link Crouton}.
+     * Disabled by default.
+     *
+     * @param enabled <code>true</code> to report {@link Crouton}s that outlive their {@link Activity}.
+     */
+    public static void setLeakDetectionEnabled(boolean enabled) {
+        Manager.getInstance().setLeakDetectionEnabled(enabled);
+    }
+
+    /**
+     * Lays out the text of queued {@link Crouton}s on a background thread, so only a ready text
+     * is set when their view is built. Only works on API 28 and above, as it uses
+     * <code>PrecomputedText</code>; on older versions enabling it does nothing. The parameters of a {@link Style} are learned from the first {@link Crouton}
+     * measured with it, custom fonts are loaded in the background as well. Disabled by default.
+     *
+     * @param enabled <code>true</code> to prepare the text of queued {@link Crouton}s in the background.
+     */
+    public static void setTextPrecomputingEnabled(boolean enabled) {
+        Manager.getInstance().setTextPrecomputingEnabled(enabled);
+    }
+
+    /**
+     * Sets the {@link CroutonScheduler} that times display durations, animation ends, layout
+     * timeouts, the display of the next {@link Crouton} and the frames {@link Crouton}s are attached,
+     * animated and updated in, e.g. to align the delays with frames through
+     * {@link ChoreographerScheduler} or to fast-forward everything with a {@link VirtualTimeScheduler}.
+     * Pending delays are moved over with the time they have left. {@link MainLooperScheduler} is
+     * used by default.
+     *
+     * @param scheduler The {@link CroutonScheduler} to use.
+     */
+    public static void setScheduler(CroutonScheduler scheduler) {
+        if (null == scheduler) {
+            throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+        }
+        Manager.getInstance().setScheduler(scheduler);
+    }
+
+    /**
+     * Starts appending the scheduling events of all {@link Crouton}s to a binary log file in the
+     * cache directory of the app, which can be pulled from the device and turned into a timeline
+     * with latency statistics by the <code>tools</code> module. The file has a fixed size and
+     * overwrites the oldest events once it is full; an existing log of the same size is continued.
+     * Recording an event costs a few writes to memory mapped from the file.
+     * <p/>
+     * Opening the file performs disk I/O, so this is best called off the main thread.
+     *
+     * @param context  Used to look up the cache directory.
+     * @param maxBytes The maximum size of the log file, e.g. 64 KB for about 2700 events.
+     * @throws IOException If the log file could not be created.
+     */
+    public static void startRecording(Context context, int maxBytes) throws IOException {
+        if (null == context) {
+            throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+        }
+        Manager.getInstance().startRecording(context.getCacheDir(), maxBytes);
+    }
+
+    /**
+     * Stops appending scheduling events to the binary log file and flushes it.
+     */
+    public static void stopRecording() {
+        Manager.getInstance().stopRecording();
+    }
+
+    /**
+     * Prints the state of the {@link Crouton} queue and the most recent scheduling events, e.g. from
+     * {@link Activity#dump(String, java.io.FileDescriptor, PrintWriter, String[])} so they show up in
+     * <code>adb shell dumpsys activity</code>. The events are always recorded, at the cost of a few
+     * array writes each.
+     *
+     * @param writer The {@link PrintWriter} to print to.
+     */
+    public static void dump(PrintWriter writer) {
+        if (null == writer) {
+            throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+        }
+        Manager.getInstance().dump("", writer);
+    }
+
+    /**
+     * Returns how many frames have been missed by the time {@link Crouton}s were attached or
+     * started animating. A growing count means the main thread was busy when croutons were shown.
+     *
+     * @return The number of overrun frames since the process started.
+     */
+    public static long getFrameOverrunCount() {
+        return Manager.getInstance().getFrameOverrunCount();
+    }
+
+    /**
+     * Defers attaching {@link Crouton}s while frames run over budget or the user is scrolling,
+     * for at most the time set via {@link Configuration.Builder#setMaxDeferral(int)}.
+     * Disabled by default.
+     *
+     * @param enabled <code>true</code> to enable the deferral.
+     */
+    public static void setJankAwareDeferralEnabled(boolean enabled) {
+        Manager.getInstance().setJankAwareDeferralEnabled(enabled);
+    }
+
+    /**
+     * Holds back {@link Crouton}s shown from {@link Activity#onCreate(android.os.Bundle)} or
+     * {@link Activity#onResume()} until the {@link Activity} has drawn its first frame, then
+     * releases them in a single batch. Disabled by default.
+     *
+     * @param enabled <code>true</code> to enable the gate.
+     */
+    public static void setStartupGateEnabled(boolean enabled) {
+        Manager.getInstance().setStartupGateEnabled(enabled);
+    }
+
+    /**
+     * Shows {@link Crouton}s within a container that is attached once to the {@link Activity}'s
+     * content view or the supplied {@link ViewGroup} and stays there. Adding and removing
+     * {@link Crouton}s then no longer re-lays out the whole content hierarchy. Disabled by default.
+     * <p/>
+     * Croutons shown in other {@link ViewGroup}s than a {@link FrameLayout} or {@link RelativeLayout}
+     * are still added directly.
+     *
+     * @param enabled <code>true</code> to show {@link Crouton}s within a host container.
+     */
+    public static void setCroutonHostEnabled(boolean enabled) {
+        Manager.getInstance().setCroutonHostEnabled(enabled);
+    }
+
+    /**
+     * Keeps the view of a displayed {@link Crouton} attached when the next queued one shows in
+     * the same place with a compatible {@link Style}. Only text, image and colors are swapped,
+     * animated as a content transition instead of the out and in animations. Disabled by default.
+     *
+     * @param enabled <code>true</code> to rebind the content of compatible {@link Crouton}s.
+     */
+    public static void setRebindingEnabled(boolean enabled) {
+        Manager.getInstance().setRebindingEnabled(enabled);
+    }
+
+    /**
+     * Positions {@link Crouton}s shown in an {@link Activity} below a translucent status bar or
+     * an overlay action bar by the window insets of the content view. The offset is computed once per
+     * window and only updated when the insets change, instead of looking up the action bar for every
+     * {@link Crouton}. The insets are tracked by the host container, so this requires
+     * {@link #setCroutonHostEnabled(boolean)} to be enabled as well; without it a warning is logged
+     * and the action bar is looked up as before. Only has an effect as of API 20, disabled by default.
+     *
+     * @param enabled <code>true</code> to position {@link Crouton}s by the window insets.
+     */
+    public static void setInsetsPositioningEnabled(boolean enabled) {
+        Manager.getInstance().setInsetsPositioningEnabled(enabled);
+    }
+
     /**
      * Cancels a {@link Crouton} immediately.
      */
@@ -479,12 +726,12 @@ public final class Crouton {
     }
 
     public Animation getInAnimation() {
-        if ((null == this.inAnimation) && (null != this.activity)) {
+        if ((null == this.inAnimation) && (null != getActivity())) {
             if (getConfiguration().inAnimationResId > 0) {
                 this.inAnimation = AnimationUtils.loadAnimation(getActivity(), getConfiguration().inAnimationResId);
             } else {
-                measureCroutonView();
-                this.inAnimation = DefaultAnimationsBuilder.buildDefaultSlideInDownAnimation(getView());
+                this.inAnimation = DefaultAnimationsBuilder.buildDefaultSlideInDownAnimation(measureCroutonView(),
+                        isReducedProfile());
             }
         }
 
@@ -492,11 +739,11 @@ public final class Crouton {
     }
 
     public Animation getOutAnimation() {
-        if ((null == this.outAnimation) && (null != this.activity)) {
+        if ((null == this.outAnimation) && (null != getActivity())) {
             if (getConfiguration().outAnimationResId > 0) {
                 this.outAnimation = AnimationUtils.loadAnimation(getActivity(), getConfiguration().outAnimationResId);
             } else {
-                this.outAnimation = DefaultAnimationsBuilder.buildDefaultSlideOutUpAnimation(getView());
+                this.outAnimation = DefaultAnimationsBuilder.buildDefaultSlideOutUpAnimation(getView(), isReducedProfile());
             }
         }
 
@@ -504,7 +751,9 @@ public final class Crouton {
     }
 
     /**
-     * @param lifecycleCallback Callback object for notable events in the life of a Crouton.
+     * @param lifecycleCallback Callback object for notable events in the life of a Crouton. Pass an
+     *                          {@link ExtendedLifecycleCallback} to be notified of every phase along
+     *                          with timestamps.
      */
     public void setLifecycleCallback(LifecycleCallback lifecycleCallback) {
         this.lifecycleCallback = lifecycleCallback;
@@ -519,6 +768,87 @@ public final class Crouton {
         Manager.getInstance().removeCrouton(this);
     }
 
+    /**
+     * Changes the text of this {@link Crouton} in place, whether it is still queued or already
+     * displayed. A displayed {@link Crouton} keeps its view, animation and remaining display time.
+     * <p/>
+     * Multiple updates within the same frame are applied at once with the next frame.
+     * Has no effect on {@link Crouton}s with a custom view.
+     *
+     * @param text The text to display.
+     * @return this {@link Crouton}.
+     */
+    public Crouton update(CharSequence text) {
+        return update(text, null, false);
+    }
+
+    /**
+     * Changes the {@link Style} of this {@link Crouton} in place, whether it is still queued or
+     * already displayed. Only the properties that differ from the current {@link Style} are applied.
+     * The {@link Configuration} of the {@link Crouton} is not changed.
+     * <p/>
+     * Multiple updates within the same frame are applied at once with the next frame.
+     * Has no effect on {@link Crouton}s with a custom view.
+     *
+     * @param style The {@link Style} to display the {@link Crouton} with.
+     * @return this {@link Crouton}.
+     */
+    public Crouton update(Style style) {
+        return update(null, style, false);
+    }
+
+    /**
+     * Changes the text and {@link Style} of this {@link Crouton} in place, whether it is still queued
+     * or already displayed.
+     * <p/>
+     * Multiple updates within the same frame are applied at once with the next frame.
+     * Has no effect on {@link Crouton}s with a custom view.
+     *
+     * @param text          The text to display or <code>null</code> to keep the current one.
+     * @param style         The {@link Style} to use or <code>null</code> to keep the current one.
+     * @param resetDuration <code>true</code> to display a showing {@link Crouton} for its full
+     *                      duration again, counting from this update.
+     * @return this {@link Crouton}.
+     */
+    public Crouton update(CharSequence text, Style style, boolean resetDuration) {
+        if ((null == text) && (null == style)) {
+            throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+        }
+        if (null != customView) {
+            return this;
+        }
+
+        if (null != text) {
+            pendingText = text;
+        }
+        if (null != style) {
+            pendingStyle = style;
+        }
+        pendingResetDuration |= resetDuration;
+
+        if (null == croutonView) {
+            // Nothing has been built yet, so the new values are simply used once it is.
+            applyPendingUpdate();
+        } else if (updatePosted) {
+            final MetricsSink metricsSink = Manager.getInstance().getMetricsSink();
+            if (null != metricsSink) {
+                metricsSink.recordCoalesced();
+            }
+        } else {
+            if (null == updateCallback) {
+                updateCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        applyPendingUpdate();
+                    }
+                };
+            }
+            updatePosted = true;
+            Manager.getInstance().getScheduler().postFrameCallback(updateCallback);
+        }
+        return this;
+    }
+
     /**
      * Allows setting of an {@link OnClickListener} directly to a {@link Crouton} without having to use a custom view.
      *
@@ -544,13 +874,14 @@ public final class Crouton {
     @Override
     public String toString() {
         return "Crouton{" +
-                "text=" + text +
+                "id=" + id +
+                ", text=" + text +
                 ", style=" + style +
                 ", configuration=" + configuration +
                 ", customView=" + customView +
                 ", onClickListener=" + onClickListener +
-                ", activity=" + activity +
-                ", viewGroup=" + viewGroup +
+                ", activity=" + getActivity() +
+                ", viewGroup=" + getViewGroup() +
                 ", croutonView=" + croutonView +
                 ", inAnimation=" + inAnimation +
                 ", outAnimation=" + outAnimation +
@@ -590,7 +921,7 @@ public final class Crouton {
      * <code>false</code>.
      */
     boolean isShowing() {
-        return (null != activity) && (isCroutonViewNotNull() || isCustomViewNotNull());
+        return (null != getActivity()) && (isCroutonViewNotNull() || isCustomViewNotNull());
     }
 
     private boolean isCroutonViewNotNull() {
@@ -601,18 +932,104 @@ public final class Crouton {
         return (null != customView) && (null != customView.getParent());
     }
 
+    /**
+     * @param enqueuedNanos When this {@link Crouton} has been queued, as of {@link System#nanoTime()}.
+     */
+    void setEnqueuedNanos(long enqueuedNanos) {
+        this.enqueuedNanos = enqueuedNanos;
+    }
+
+    /**
+     * @param preparedText The text laid out in the background by the {@link TextPrecomputer}.
+     */
+    void setPreparedText(TextPrecomputer.PreparedText preparedText) {
+        this.preparedText = preparedText;
+    }
+
+    /**
+     * @return The text laid out in the background or <code>null</code> if it isn't ready.
+     */
+    TextPrecomputer.PreparedText getPreparedText() {
+        return preparedText;
+    }
+
+    /**
+     * @return When this {@link Crouton} has been queued or 0 if no metrics were recorded at the time.
+     */
+    long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    /**
+     * @return <code>true</code> if the {@link DeviceProfile#REDUCED} profile is in effect.
+     */
+    boolean isReducedProfile() {
+        return DeviceProfileResolver.getInstance().isReduced(getActivity());
+    }
+
     /**
      * Removes the activity reference this {@link Crouton} is holding
      */
     void detachActivity() {
-        activity = null;
+        activityReference = null;
     }
 
     /**
      * Removes the viewGroup reference this {@link Crouton} is holding
      */
     void detachViewGroup() {
-        viewGroup = null;
+        viewGroupReference = null;
+    }
+
+    /**
+     * @return <code>true</code> if the {@link Activity} or {@link ViewGroup} this {@link Crouton}
+     * should be shown in has been garbage collected or the {@link Activity} has been destroyed
+     * while it was still attached.
+     */
+    @TargetApi(17)
+    boolean isHostDestroyed() {
+        if (((null != activityReference) && (null == activityReference.get()))
+                || ((null != viewGroupReference) && (null == viewGroupReference.get()))) {
+            return true;
+        }
+        final Activity activity = getActivity();
+        return (null != activity) && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1)
+                && activity.isDestroyed();
+    }
+
+    /**
+     * Drops everything that may keep the destroyed host of this {@link Crouton} alive: the host
+     * references, the built view, the click listener and the lifecycle callback. A custom view
+     * passed in by the caller is kept.
+     */
+    void releaseHost() {
+        activityReference = null;
+        viewGroupReference = null;
+        croutonView = null;
+        onClickListener = null;
+        lifecycleCallback = null;
+        preparedText = null;
+    }
+
+    /**
+     * Marks this {@link Crouton} as queued during a pass of the {@link LeakWatcher}.
+     */
+    void setLeakCheckPass(int pass) {
+        leakCheckPass = pass;
+    }
+
+    /**
+     * @return The last pass of the {@link LeakWatcher} that found this {@link Crouton} queued.
+     */
+    int getLeakCheckPass() {
+        return leakCheckPass;
+    }
+
+    /**
+     * @return Where this {@link Crouton} has been created, if leak detection was enabled at the time.
+     */
+    Throwable getCreationTrace() {
+        return creationTrace;
     }
 
     /**
@@ -646,18 +1063,34 @@ public final class Crouton {
         return configuration;
     }
 
+    /**
+     * @return The id of this {@link Crouton}, unique within the process.
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * @return The {@link ViewGroup} or else the {@link Activity} this {@link Crouton} is shown in,
+     * or <code>null</code> if it has been detached.
+     */
+    Object getHost() {
+        final ViewGroup viewGroup = getViewGroup();
+        return (null != viewGroup) ? viewGroup : getActivity();
+    }
+
     /**
      * @return the activity
      */
     Activity getActivity() {
-        return activity;
+        return (null != activityReference) ? activityReference.get() : null;
     }
 
     /**
      * @return the viewGroup
      */
     ViewGroup getViewGroup() {
-        return viewGroup;
+        return (null != viewGroupReference) ? viewGroupReference.get() : null;
     }
 
     /**
@@ -684,75 +1117,273 @@ public final class Crouton {
         return croutonView;
     }
 
-    private void measureCroutonView() {
+    /**
+     * @param previous The {@link Crouton} that is currently attached.
+     * @return <code>true</code> if this {@link Crouton} can take over the attached view of the
+     * previous one by only swapping its content.
+     */
+    boolean canRebind(Crouton previous) {
+        final Activity activity = getActivity();
+        return (null == customView) && (null == previous.customView) && (null == croutonView)
+                && (null != previous.croutonView) && (null != activity) && (activity == previous.getActivity())
+                && (getViewGroup() == previous.getViewGroup()) && style.isLayoutCompatible(previous.style);
+    }
+
+    /**
+     * Takes over the attached view of the previous {@link Crouton} and swaps its text, image,
+     * colors and click listener for the ones of this {@link Crouton}.
+     *
+     * @param previous The {@link Crouton} that is currently attached.
+     */
+    void rebind(Crouton previous) {
+        croutonView = previous.croutonView;
+        previous.croutonView = null;
+        bindContent(getActivity().getResources());
+    }
+
+    /**
+     * Hands the view of this removed {@link Crouton} to the {@link CroutonViewPool}, so the next
+     * {@link Crouton} can take it over once its out animation is over.
+     */
+    void recycleView() {
+        if ((null != activityReference) || (null == croutonView) || (null != croutonView.getParent())) {
+            return;
+        }
+        CroutonViewPool.getInstance().recycle(croutonView, style);
+        croutonView = null;
+    }
+
+    /**
+     * Swaps the text, image, colors and click listener of a view built for a compatible
+     * {@link Style} for the ones of this {@link Crouton}.
+     */
+    private void bindContent(final Resources resources) {
+        if (0 == style.backgroundDrawableResourceId) {
+            initializeBackgroundColor(resources, croutonView);
+        }
+        croutonView.setOnClickListener(onClickListener);
+        if (null == onClickListener) {
+            croutonView.setClickable(false);
+        }
+
+        final TextView textView = (TextView) croutonView.findViewById(TEXT_ID);
+        if (!TextPrecomputer.apply(this, textView)) {
+            initializeText(resources, textView);
+        }
+        preparedText = null;
+        // A text appearance overrides the text color and is the same for compatible styles.
+        if (0 == style.textAppearanceResId) {
+            initializeTextColor(resources, textView);
+        }
+
+        final ImageView image = (ImageView) croutonView.findViewById(IMAGE_ID);
+        if (null != image) {
+            initializeImage(image);
+        }
+    }
+
+    /**
+     * Applies the text and {@link Style} passed to {@link #update(CharSequence, Style, boolean)}
+     * since the last frame, touching only the parts of the view that changed.
+     */
+    private void applyPendingUpdate() {
+        updatePosted = false;
+        final Style previousStyle = this.style;
+        final CharSequence previousText = this.text;
+        if (null != pendingStyle) {
+            this.style = pendingStyle;
+        }
+        if (null != pendingText) {
+            this.text = pendingText;
+        }
+        final boolean resetDuration = pendingResetDuration;
+        pendingText = null;
+        pendingStyle = null;
+        pendingResetDuration = false;
+
+        final Activity activity = getActivity();
+        if ((null == croutonView) || (null == activity)) {
+            return;
+        }
+
+        final Resources resources = activity.getResources();
+        if (!style.isLayoutCompatible(previousStyle)) {
+            // The structure of the view changes, so rebuild its content within the attached view.
+            final ViewGroup.LayoutParams params = croutonView.getLayoutParams();
+            params.width = resolveWidth(resources);
+            params.height = resolveHeight(resources);
+            croutonView.setLayoutParams(params);
+            initializeBackground(resources, croutonView);
+            croutonView.removeAllViews();
+            croutonView.addView(initializeContentView(resources));
+        } else {
+            if ((0 == style.backgroundDrawableResourceId)
+                    && ((style.backgroundColorValue != previousStyle.backgroundColorValue)
+                    || (style.backgroundColorResourceId != previousStyle.backgroundColorResourceId))) {
+                initializeBackgroundColor(resources, croutonView);
+            }
+
+            final TextView textView = (TextView) croutonView.findViewById(TEXT_ID);
+            if (!TextUtils.equals(text, previousText)) {
+                initializeText(resources, textView);
+            }
+            if ((0 == style.textAppearanceResId)
+                    && ((style.textColorValue != previousStyle.textColorValue)
+                    || (style.textColorResourceId != previousStyle.textColorResourceId))) {
+                initializeTextColor(resources, textView);
+            }
+
+            if ((style.imageDrawable != previousStyle.imageDrawable) || (style.imageResId != previousStyle.imageResId)) {
+                final ImageView image = (ImageView) croutonView.findViewById(IMAGE_ID);
+                if (null != image) {
+                    initializeImage(image);
+                }
+            }
+        }
+
+        if (resetDuration && isShowing()) {
+            Manager.getInstance().resetDuration(this);
+        }
+    }
+
+    /**
+     * Measures the height of the view, unless the height for the same {@link Style}, text and
+     * available width has been measured before.
+     *
+     * @return The measured height of the view.
+     */
+    private int measureCroutonView() {
         View view = getView();
-        int widthSpec;
+        final Activity activity = getActivity();
+        final ViewGroup viewGroup = getViewGroup();
+        final int availableWidth;
         if (null != viewGroup) {
-            widthSpec = View.MeasureSpec.makeMeasureSpec(viewGroup.getMeasuredWidth(), View.MeasureSpec.AT_MOST);
+            availableWidth = viewGroup.getMeasuredWidth();
         } else {
-            widthSpec = View.MeasureSpec.makeMeasureSpec(activity.getWindow().getDecorView().getMeasuredWidth(),
-                    View.MeasureSpec.AT_MOST);
+            availableWidth = activity.getWindow().getDecorView().getMeasuredWidth();
         }
 
-        view.measure(widthSpec, View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        // The content of custom views is unknown, so they are always measured.
+        final float scaledDensity = activity.getResources().getDisplayMetrics().scaledDensity;
+        if (null == customView) {
+            final int cachedHeight = MeasureCache.getInstance().get(style, text, availableWidth, scaledDensity);
+            if (MeasureCache.NOT_CACHED != cachedHeight) {
+                return cachedHeight;
+            }
+        }
+
+        final boolean traced = CroutonTrace.beginSection(CroutonTrace.MEASURE);
+        try {
+            view.measure(View.MeasureSpec.makeMeasureSpec(availableWidth, View.MeasureSpec.AT_MOST),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        } finally {
+            CroutonTrace.endSection(traced);
+        }
+        if (null == customView) {
+            MeasureCache.getInstance().put(style, text, availableWidth, scaledDensity, view.getMeasuredHeight());
+            TextPrecomputer.getInstance().remember(style, (TextView) view.findViewById(TEXT_ID));
+        }
+        return view.getMeasuredHeight();
     }
 
     private void initializeCroutonView() {
-        Resources resources = this.activity.getResources();
+        final MetricsSink metricsSink = Manager.getInstance().getMetricsSink();
+        final long start = (null != metricsSink) ? System.nanoTime() : 0;
+        final boolean traced = CroutonTrace.beginSection(CroutonTrace.BUILD_VIEW);
+        try {
+            Resources resources = getActivity().getResources();
+
+            // take over the view of the previous crouton if it fits
+            final FrameLayout recycled = CroutonViewPool.getInstance().obtain(getActivity(), style);
+            if (null != recycled) {
+                this.croutonView = recycled;
+                initializeRecycledView(resources);
+            } else {
+                this.croutonView = initializeCroutonViewGroup(resources);
+
+                // create content view
+                RelativeLayout contentView = initializeContentView(resources);
+                this.croutonView.addView(contentView);
+            }
+        } finally {
+            CroutonTrace.endSection(traced);
+        }
+        if (null != metricsSink) {
+            metricsSink.recordViewBuildTime(System.nanoTime() - start);
+        }
+    }
 
-        this.croutonView = initializeCroutonViewGroup(resources);
+    private void initializeRecycledView(final Resources resources) {
+        croutonView.clearAnimation();
+        croutonView.getChildAt(0).clearAnimation();
 
-        // create content view
-        RelativeLayout contentView = initializeContentView(resources);
-        this.croutonView.addView(contentView);
+        // The layout params are reused, margins set for the previous host are reset.
+        final ViewGroup.LayoutParams params = croutonView.getLayoutParams();
+        params.width = resolveWidth(resources);
+        params.height = resolveHeight(resources);
+        if (params instanceof ViewGroup.MarginLayoutParams) {
+            ((ViewGroup.MarginLayoutParams) params).setMargins(0, 0, 0, 0);
+        }
+        bindContent(resources);
     }
 
     private FrameLayout initializeCroutonViewGroup(Resources resources) {
-        FrameLayout croutonView = new FrameLayout(this.activity);
+        FrameLayout croutonView = new FrameLayout(getActivity());
 
         if (null != onClickListener) {
             croutonView.setOnClickListener(onClickListener);
         }
 
-        final int height;
+        croutonView.setLayoutParams(new FrameLayout.LayoutParams(resolveWidth(resources), resolveHeight(resources)));
+
+        // set background
+        initializeBackground(resources, croutonView);
+        return croutonView;
+    }
+
+    private int resolveHeight(final Resources resources) {
         if (this.style.heightDimensionResId > 0) {
-            height = resources.getDimensionPixelSize(this.style.heightDimensionResId);
-        } else {
-            height = this.style.heightInPixels;
+            return resources.getDimensionPixelSize(this.style.heightDimensionResId);
         }
+        return this.style.heightInPixels;
+    }
 
+    private int resolveWidth(final Resources resources) {
         final int width;
         if (this.style.widthDimensionResId > 0) {
             width = resources.getDimensionPixelSize(this.style.widthDimensionResId);
         } else {
             width = this.style.widthInPixels;
         }
+        return width != 0 ? width : FrameLayout.LayoutParams.MATCH_PARENT;
+    }
 
-        croutonView.setLayoutParams(
-                new FrameLayout.LayoutParams(width != 0 ? width : FrameLayout.LayoutParams.MATCH_PARENT, height));
-
-        // set background
-        if (this.style.backgroundColorValue != Style.NOT_SET) {
-            croutonView.setBackgroundColor(this.style.backgroundColorValue);
-        } else {
-            croutonView.setBackgroundColor(resources.getColor(this.style.backgroundColorResourceId));
-        }
+    private void initializeBackground(final Resources resources, final View croutonView) {
+        initializeBackgroundColor(resources, croutonView);
 
         // set the background drawable if set. This will override the background
-        // color.
-        if (this.style.backgroundDrawableResourceId != 0) {
-            Bitmap background = BitmapFactory.decodeResource(resources, this.style.backgroundDrawableResourceId);
+        // color. The reduced profile sticks to the color instead of tiled and plain bitmaps.
+        if ((this.style.backgroundDrawableResourceId != 0) && !(isReducedProfile() && (this.style.isTileEnabled
+                || BackgroundCache.getInstance().isPlainBitmap(resources, this.style.backgroundDrawableResourceId)))) {
+            Bitmap background = BackgroundCache.getInstance().get(resources, this.style.backgroundDrawableResourceId);
             BitmapDrawable drawable = new BitmapDrawable(resources, background);
             if (this.style.isTileEnabled) {
                 drawable.setTileModeXY(Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
             }
             croutonView.setBackgroundDrawable(drawable);
         }
-        return croutonView;
+    }
+
+    private void initializeBackgroundColor(final Resources resources, final View croutonView) {
+        if (this.style.backgroundColorValue != Style.NOT_SET) {
+            croutonView.setBackgroundColor(this.style.backgroundColorValue);
+        } else {
+            croutonView.setBackgroundColor(resources.getColor(this.style.backgroundColorResourceId));
+        }
     }
 
     private RelativeLayout initializeContentView(final Resources resources) {
-        RelativeLayout contentView = new RelativeLayout(this.activity);
+        RelativeLayout contentView = new RelativeLayout(getActivity());
         contentView.setLayoutParams(new RelativeLayout.LayoutParams(RelativeLayout.LayoutParams.MATCH_PARENT,
                 RelativeLayout.LayoutParams.MATCH_PARENT));
 
@@ -794,24 +1425,13 @@ public final class Crouton {
     }
 
     private TextView initializeTextView(final Resources resources) {
-        TextView text = new TextView(this.activity);
+        TextView text = new TextView(getActivity());
         text.setId(TEXT_ID);
-        if (this.style.fontName != null) {
-            setTextWithCustomFont(text, this.style.fontName);
-        } else if (this.style.fontNameResId != 0) {
-            setTextWithCustomFont(text, resources.getString(this.style.fontNameResId));
-        } else {
-            text.setText(this.text);
-        }
         text.setTypeface(Typeface.DEFAULT_BOLD);
         text.setGravity(this.style.gravity);
 
         // set the text color if set
-        if (this.style.textColorValue != Style.NOT_SET) {
-            text.setTextColor(this.style.textColorValue);
-        } else if (this.style.textColorResourceId != 0) {
-            text.setTextColor(resources.getColor(this.style.textColorResourceId));
-        }
+        initializeTextColor(resources, text);
 
         // Set the text size. If the user has set a text size and text
         // appearance, the text size in the text appearance
@@ -827,11 +1447,35 @@ public final class Crouton {
 
         // Set the text appearance
         if (this.style.textAppearanceResId != 0) {
-            text.setTextAppearance(this.activity, this.style.textAppearanceResId);
+            text.setTextAppearance(getActivity(), this.style.textAppearanceResId);
         }
+
+        // The text is set last, so text prepared for the same parameters can be used.
+        if (!TextPrecomputer.apply(this, text)) {
+            initializeText(resources, text);
+        }
+        preparedText = null;
         return text;
     }
 
+    private void initializeText(final Resources resources, final TextView text) {
+        if (this.style.fontName != null) {
+            setTextWithCustomFont(text, this.style.fontName);
+        } else if (this.style.fontNameResId != 0) {
+            setTextWithCustomFont(text, resources.getString(this.style.fontNameResId));
+        } else {
+            text.setText(this.text);
+        }
+    }
+
+    private void initializeTextColor(final Resources resources, final TextView text) {
+        if (this.style.textColorValue != Style.NOT_SET) {
+            text.setTextColor(this.style.textColorValue);
+        } else if (this.style.textColorResourceId != 0) {
+            text.setTextColor(resources.getColor(this.style.textColorResourceId));
+        }
+    }
+
     private void setTextWithCustomFont(TextView text, String fontName) {
         if (this.text != null) {
             SpannableString s = new SpannableString(this.text);
@@ -851,11 +1495,24 @@ public final class Crouton {
 
     private ImageView initializeImageView() {
         ImageView image;
-        image = new ImageView(this.activity);
+        image = new ImageView(getActivity());
         image.setId(IMAGE_ID);
         image.setAdjustViewBounds(true);
         image.setScaleType(this.style.imageScaleType);
+        initializeImage(image);
+
+        RelativeLayout.LayoutParams imageParams = new RelativeLayout.LayoutParams(
+                RelativeLayout.LayoutParams.WRAP_CONTENT,
+                RelativeLayout.LayoutParams.WRAP_CONTENT);
+        imageParams.addRule(RelativeLayout.ALIGN_PARENT_LEFT, RelativeLayout.TRUE);
+        imageParams.addRule(RelativeLayout.CENTER_VERTICAL, RelativeLayout.TRUE);
+
+        image.setLayoutParams(imageParams);
 
+        return image;
+    }
+
+    private void initializeImage(final ImageView image) {
         // set the image drawable if not null
         if (null != this.style.imageDrawable) {
             image.setImageDrawable(this.style.imageDrawable);
@@ -866,15 +1523,5 @@ public final class Crouton {
         if (this.style.imageResId != 0) {
             image.setImageResource(this.style.imageResId);
         }
-
-        RelativeLayout.LayoutParams imageParams = new RelativeLayout.LayoutParams(
-                RelativeLayout.LayoutParams.WRAP_CONTENT,
-                RelativeLayout.LayoutParams.WRAP_CONTENT);
-        imageParams.addRule(RelativeLayout.ALIGN_PARENT_LEFT, RelativeLayout.TRUE);
-        imageParams.addRule(RelativeLayout.CENTER_VERTICAL, RelativeLayout.TRUE);
-
-        image.setLayoutParams(imageParams);
-
-        return image;
     }
 }
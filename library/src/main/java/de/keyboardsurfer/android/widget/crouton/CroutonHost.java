@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowInsets;
+import android.widget.FrameLayout;
+import android.widget.RelativeLayout;
+
+/**
+ * A full size container that is attached once to an {@link android.app.Activity}'s content view
+ * or a {@link ViewGroup} and holds all {@link Crouton}s shown there.
+ * <p/>
+ * Once it has been laid out the host keeps its size, so layout requests of the
+ * {@link Crouton}s within it are handled locally and never propagate up to the hierarchy
+ * of the app.
+ * <p/>
+ * A host attached to an activity's content view can also position its {@link Crouton}s below
+ * whatever covers the top of the content, e.g. a translucent status bar or an overlay action bar.
+ * The offset is taken from the {@link WindowInsets} dispatched to the host, so it is computed once
+ * per window and only updated when the insets change.
+ */
+@TargetApi(16)
+final class CroutonHost extends FrameLayout {
+  private final Runnable localLayout = new Runnable() {
+    @Override
+    public void run() {
+      localLayoutPending = false;
+      performLocalLayout();
+    }
+  };
+  private boolean laidOut;
+  private boolean localLayoutPending;
+  private boolean tracksTopInset;
+  private int topInset;
+
+  private CroutonHost(Context context) {
+    super(context);
+  }
+
+  /**
+   * @param parent
+   *   The {@link ViewGroup} a {@link Crouton} should be shown in.
+   *
+   * @return <code>true</code> if a full size {@link CroutonHost} can be stacked on top of the
+   * parent's children.
+   */
+  static boolean canHost(ViewGroup parent) {
+    return parent instanceof FrameLayout || parent instanceof RelativeLayout;
+  }
+
+  /**
+   * Returns the {@link CroutonHost} of the provided parent, attaching one if there is none yet.
+   *
+   * @param parent
+   *   The {@link ViewGroup} a {@link Crouton} should be shown in.
+   *
+   * @return The {@link CroutonHost} to add the {@link Crouton} to.
+   */
+  static CroutonHost obtain(ViewGroup parent) {
+    return obtain(parent, false);
+  }
+
+  /**
+   * Returns the {@link CroutonHost} of the provided parent, attaching one if there is none yet.
+   *
+   * @param parent
+   *   The {@link ViewGroup} a {@link Crouton} should be shown in.
+   * @param tracksTopInset
+   *   <code>true</code> if the host should offset its {@link Crouton}s by the top window inset.
+   *
+   * @return The {@link CroutonHost} to add the {@link Crouton} to.
+   */
+  static CroutonHost obtain(ViewGroup parent, boolean tracksTopInset) {
+    final CroutonHost host = obtainHost(parent);
+    if (tracksTopInset && !host.tracksTopInset) {
+      host.tracksTopInset = true;
+      host.requestApplyInsets();
+    }
+    return host;
+  }
+
+  private static CroutonHost obtainHost(ViewGroup parent) {
+    final int childCount = parent.getChildCount();
+    for (int i = childCount - 1; i >= 0; i--) {
+      final View child = parent.getChildAt(i);
+      if (child instanceof CroutonHost) {
+        // Views added after the host would cover its croutons.
+        if (i != childCount - 1) {
+          child.bringToFront();
+        }
+        return (CroutonHost) child;
+      }
+    }
+
+    final CroutonHost host = new CroutonHost(parent.getContext());
+    parent.addView(host, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+        ViewGroup.LayoutParams.MATCH_PARENT));
+    return host;
+  }
+
+  @Override
+  public void requestLayout() {
+    if (!laidOut) {
+      super.requestLayout();
+      return;
+    }
+    // Mark only this host as dirty and lay it out on its own with the next frame.
+    forceLayout();
+    if (!localLayoutPending) {
+      localLayoutPending = true;
+      postOnAnimation(localLayout);
+    }
+  }
+
+  /**
+   * @return The top window inset of the content view, if this host tracks it.
+   */
+  int getTopInset() {
+    return topInset;
+  }
+
+  @Override
+  @TargetApi(20)
+  public WindowInsets onApplyWindowInsets(WindowInsets insets) {
+    final int top = insets.getSystemWindowInsetTop();
+    if (tracksTopInset && (top != topInset)) {
+      topInset = top;
+      for (int i = 0; i < getChildCount(); i++) {
+        final View child = getChildAt(i);
+        final MarginLayoutParams params = (MarginLayoutParams) child.getLayoutParams();
+        params.topMargin = top;
+        child.setLayoutParams(params);
+      }
+    }
+    return insets;
+  }
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    // Insets are only dispatched on request, not when a view is added.
+    if (tracksTopInset) {
+      requestApplyInsets();
+    }
+  }
+
+  @Override
+  public void requestApplyInsets() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH) {
+      super.requestApplyInsets();
+    }
+  }
+
+  @Override
+  protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    super.onLayout(changed, left, top, right, bottom);
+    laidOut = true;
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    removeCallbacks(localLayout);
+    localLayoutPending = false;
+    laidOut = false;
+  }
+
+  private void performLocalLayout() {
+    if (!laidOut || !isLayoutRequested()) {
+      return;
+    }
+    measure(MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(getHeight(), MeasureSpec.EXACTLY));
+    layout(getLeft(), getTop(), getRight(), getBottom());
+    invalidate();
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link MetricsSink} that keeps all measurements in fixed-bucket {@link Histogram}s and counters.
+ * <p/>
+ * Take a snapshot with {@link #snapshotTo(CroutonMetrics)} from any thread, e.g. periodically
+ * from a telemetry job, and ship its values. Reusing the snapshot instance keeps this free of
+ * allocations. The histogram getters return copies, so a reader never sees them change.
+ */
+public final class CroutonMetrics implements MetricsSink {
+  /** Orders the locks of two instances whose identity hash codes are equal. */
+  private static final Object TIE_LOCK = new Object();
+
+  private final Histogram queueDepth = new Histogram(0, 1, 2, 4, 8, 16, 32, 64);
+  private final Histogram displayLatencyMillis =
+      new Histogram(1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192);
+  private final Histogram viewBuildMicros =
+      new Histogram(50, 100, 250, 500, 1000, 2000, 4000, 8000, 16000, 32000);
+  private final Histogram layoutMicros =
+      new Histogram(50, 100, 250, 500, 1000, 2000, 4000, 8000, 16000, 32000);
+  private final Histogram frameDrops = new Histogram(0, 1, 2, 3, 5, 8, 13);
+  private long droppedCount;
+  private long layoutTimeoutCount;
+  private long coalescedCount;
+
+  @Override
+  public synchronized void recordQueueDepth(int depth) {
+    queueDepth.record(depth);
+  }
+
+  @Override
+  public synchronized void recordDisplayLatency(long nanos) {
+    displayLatencyMillis.record(TimeUnit.NANOSECONDS.toMillis(nanos));
+  }
+
+  @Override
+  public synchronized void recordViewBuildTime(long nanos) {
+    viewBuildMicros.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  @Override
+  public synchronized void recordLayoutTime(long nanos) {
+    layoutMicros.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  @Override
+  public synchronized void recordFrameDrops(int frames) {
+    frameDrops.record(frames);
+  }
+
+  @Override
+  public synchronized void recordDropped() {
+    droppedCount++;
+  }
+
+  @Override
+  public synchronized void recordLayoutTimeout() {
+    layoutTimeoutCount++;
+  }
+
+  @Override
+  public synchronized void recordCoalesced() {
+    coalescedCount++;
+  }
+
+  /**
+   * Copies all values into another instance.
+   *
+   * @param snapshot The instance to copy the values into, reuse it for every snapshot.
+   */
+  public void snapshotTo(CroutonMetrics snapshot) {
+    if (snapshot == this) {
+      return;
+    }
+    // Both instances are locked in the same order whichever way round they are passed, so
+    // concurrent snapshots in opposite directions can't deadlock.
+    final int hash = System.identityHashCode(this);
+    final int snapshotHash = System.identityHashCode(snapshot);
+    if (hash < snapshotHash) {
+      synchronized (this) {
+        synchronized (snapshot) {
+          copyTo(snapshot);
+        }
+      }
+    } else if (hash > snapshotHash) {
+      synchronized (snapshot) {
+        synchronized (this) {
+          copyTo(snapshot);
+        }
+      }
+    } else {
+      synchronized (TIE_LOCK) {
+        synchronized (this) {
+          synchronized (snapshot) {
+            copyTo(snapshot);
+          }
+        }
+      }
+    }
+  }
+
+  private void copyTo(CroutonMetrics snapshot) {
+    queueDepth.copyTo(snapshot.queueDepth);
+    displayLatencyMillis.copyTo(snapshot.displayLatencyMillis);
+    viewBuildMicros.copyTo(snapshot.viewBuildMicros);
+    layoutMicros.copyTo(snapshot.layoutMicros);
+    frameDrops.copyTo(snapshot.frameDrops);
+    snapshot.droppedCount = droppedCount;
+    snapshot.layoutTimeoutCount = layoutTimeoutCount;
+    snapshot.coalescedCount = coalescedCount;
+  }
+
+  /** Clears all values, e.g. after a snapshot has been taken. */
+  public synchronized void reset() {
+    queueDepth.reset();
+    displayLatencyMillis.reset();
+    viewBuildMicros.reset();
+    layoutMicros.reset();
+    frameDrops.reset();
+    droppedCount = 0;
+    layoutTimeoutCount = 0;
+    coalescedCount = 0;
+  }
+
+  private static Histogram copyOf(Histogram histogram) {
+    final Histogram copy = new Histogram(histogram);
+    histogram.copyTo(copy);
+    return copy;
+  }
+
+  /**
+   * @return A copy of the number of queued {@link Crouton}s, recorded whenever one has been added.
+   */
+  public synchronized Histogram getQueueDepth() {
+    return copyOf(queueDepth);
+  }
+
+  /**
+   * @return A copy of the time in milliseconds from queuing a {@link Crouton} until it was displayed.
+   */
+  public synchronized Histogram getDisplayLatencyMillis() {
+    return copyOf(displayLatencyMillis);
+  }
+
+  /**
+   * @return A copy of the time in microseconds spent building the views of {@link Crouton}s.
+   */
+  public synchronized Histogram getViewBuildMicros() {
+    return copyOf(viewBuildMicros);
+  }
+
+  /**
+   * @return A copy of the time in microseconds from attaching a {@link Crouton} until it has been laid out.
+   */
+  public synchronized Histogram getLayoutMicros() {
+    return copyOf(layoutMicros);
+  }
+
+  /**
+   * @return A copy of the number of frames missed whenever a step of displaying a {@link Crouton} ran.
+   */
+  public synchronized Histogram getFrameDrops() {
+    return copyOf(frameDrops);
+  }
+
+  public synchronized long getDroppedCount() {
+    return droppedCount;
+  }
+
+  public synchronized long getLayoutTimeoutCount() {
+    return layoutTimeoutCount;
+  }
+
+  public synchronized long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "CroutonMetrics{" +
+        "queueDepth=" + queueDepth +
+        ", displayLatencyMillis=" + displayLatencyMillis +
+        ", viewBuildMicros=" + viewBuildMicros +
+        ", layoutMicros=" + layoutMicros +
+        ", frameDrops=" + frameDrops +
+        ", dropped=" + droppedCount +
+        ", layoutTimeouts=" + layoutTimeoutCount +
+        ", coalesced=" + coalescedCount +
+        '}';
+  }
+}
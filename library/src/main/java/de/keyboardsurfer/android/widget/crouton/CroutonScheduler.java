@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.view.Choreographer;
+import de.keyboardsurfer.android.widget.crouton.core.Clock;
+import de.keyboardsurfer.android.widget.crouton.core.DelayedExecutor;
+
+/**
+ * Times everything {@link Crouton}s wait for: display durations, the end of animations, layout
+ * timeouts, the next {@link Crouton} in the queue and the frames that attaching, animating and
+ * updating {@link Crouton}s are aligned with. Set it with {@link Crouton#setScheduler(CroutonScheduler)}.
+ * <p/>
+ * Methods are called on the main thread and tasks have to be run on the main thread as well.
+ * {@link MainLooperScheduler} is used by default, {@link ChoreographerScheduler} aligns the tasks
+ * with frames and {@link VirtualTimeScheduler} runs them when its time is advanced manually.
+ */
+public interface CroutonScheduler extends Clock, DelayedExecutor {
+  /**
+   * Runs the callback once at the start of the next frame, like
+   * {@link Choreographer#postFrameCallback(Choreographer.FrameCallback)}. The frame time passed to
+   * it is on the time base of {@link #uptimeMillis()}, in nanoseconds.
+   */
+  void postFrameCallback(Choreographer.FrameCallback callback);
+
+  /** Removes all pending runs of a frame callback. */
+  void removeFrameCallback(Choreographer.FrameCallback callback);
+}
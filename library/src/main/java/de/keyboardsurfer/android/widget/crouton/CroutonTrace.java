@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import java.lang.reflect.Method;
+
+/**
+ * Emits named sections for systrace and Perfetto around the work of displaying {@link Crouton}s,
+ * plus an async slice per {@link Crouton} spanning from queuing to removal.
+ * <p/>
+ * Tracing is off by default. While it is off every call returns after checking a single flag.
+ * The flag is read once per section, when it begins.
+ */
+final class CroutonTrace {
+  static final String ENQUEUE = "Crouton:enqueue";
+  static final String BUILD_VIEW = "Crouton:buildView";
+  static final String DECODE_BACKGROUND = "Crouton:decodeBackground";
+  static final String LOAD_TYPEFACE = "Crouton:loadTypeface";
+  static final String ATTACH = "Crouton:attach";
+  static final String MEASURE = "Crouton:measure";
+  static final String PRECOMPUTE_TEXT = "Crouton:precomputeText";
+  static final String START_ANIMATION = "Crouton:startAnimation";
+  static final String REMOVE = "Crouton:remove";
+  /** Name of the async slice of a single {@link Crouton}. */
+  static final String LIFETIME = "Crouton";
+
+  /** Trace.TRACE_TAG_APP, used by the hidden async methods prior to API 29. */
+  private static final long TRACE_TAG_APP = 1L << 12;
+
+  private static volatile boolean enabled;
+  private static boolean asyncResolved;
+  private static Method beginAsync;
+  private static Method endAsync;
+
+  private CroutonTrace() {
+    /* no-op */
+  }
+
+  /**
+   * Enables or disables tracing. Has no effect prior to API 18.
+   */
+  static void setEnabled(boolean enabled) {
+    CroutonTrace.enabled = enabled && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2);
+  }
+
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Begins a section on the current thread, to be ended with {@link #endSection(boolean)}.
+   *
+   * @return <code>true</code> if the section has been begun, pass it on to {@link #endSection(boolean)}.
+   */
+  @TargetApi(18)
+  static boolean beginSection(String name) {
+    if (enabled) {
+      Trace.beginSection(name);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Ends the innermost section begun on the current thread. Sections are only ended if they have
+   * been begun, so tracing being switched in between does not leave the thread's sections unbalanced.
+   *
+   * @param traced
+   *   What {@link #beginSection(String)} returned.
+   */
+  @TargetApi(18)
+  static void endSection(boolean traced) {
+    if (traced) {
+      Trace.endSection();
+    }
+  }
+
+  /** Begins the async slice of a {@link Crouton}. */
+  static void beginAsync(Crouton crouton) {
+    if (enabled) {
+      invokeAsync(true, System.identityHashCode(crouton));
+    }
+  }
+
+  /** Ends the async slice of a {@link Crouton}, if one has been begun. */
+  static void endAsync(Crouton crouton) {
+    if (enabled) {
+      invokeAsync(false, System.identityHashCode(crouton));
+    }
+  }
+
+  private static synchronized void invokeAsync(boolean begin, int cookie) {
+    if (!asyncResolved) {
+      resolveAsyncMethods();
+    }
+    final Method method = begin ? beginAsync : endAsync;
+    if (null == method) {
+      return;
+    }
+    try {
+      if (Build.VERSION.SDK_INT >= 29) {
+        method.invoke(null, LIFETIME, cookie);
+      } else {
+        method.invoke(null, TRACE_TAG_APP, LIFETIME, cookie);
+      }
+    } catch (Exception e) {
+      // Async slices are a best effort, sections are still emitted.
+      beginAsync = null;
+      endAsync = null;
+    }
+  }
+
+  /**
+   * Async slices are public as of API 29. Before that the hidden methods taking a trace tag are
+   * the only way to emit them.
+   */
+  private static void resolveAsyncMethods() {
+    asyncResolved = true;
+    try {
+      if (Build.VERSION.SDK_INT >= 29) {
+        beginAsync = Trace.class.getMethod("beginAsyncSection", String.class, int.class);
+        endAsync = Trace.class.getMethod("endAsyncSection", String.class, int.class);
+      } else {
+        beginAsync = Trace.class.getMethod("asyncTraceBegin", long.class, String.class, int.class);
+        endAsync = Trace.class.getMethod("asyncTraceEnd", long.class, String.class, int.class);
+      }
+    } catch (NoSuchMethodException e) {
+      beginAsync = null;
+      endAsync = null;
+    }
+  }
+}
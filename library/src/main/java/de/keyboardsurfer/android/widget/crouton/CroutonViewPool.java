@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.content.Context;
+import android.view.View;
+import android.view.animation.Animation;
+import android.widget.FrameLayout;
+
+/**
+ * Keeps the view of the last removed {@link Crouton}, so the next {@link Crouton} of the same
+ * {@link android.app.Activity} with a compatible {@link Style} only rebinds its content instead of
+ * building a new view tree with new layout params.
+ * <p/>
+ * The out animation of a removed view starts with the next frame and its former parent keeps
+ * drawing it until the animation is over, so the view is only handed out after that.
+ * <p/>
+ * Only one {@link Crouton} is shown at a time, so a single view is kept. The view holds its
+ * {@link android.app.Activity}, so the {@link Manager} clears the pool as soon as the queue runs
+ * empty or the {@link Crouton}s of the {@link android.app.Activity} are cleared.
+ */
+final class CroutonViewPool {
+  private static CroutonViewPool INSTANCE;
+
+  private FrameLayout view;
+  private Style style;
+
+  private CroutonViewPool() {
+  }
+
+  /**
+   * @return The instance shared by all {@link Crouton}s.
+   */
+  static synchronized CroutonViewPool getInstance() {
+    if (null == INSTANCE) {
+      INSTANCE = new CroutonViewPool();
+    }
+
+    return INSTANCE;
+  }
+
+  /**
+   * Keeps a detached view, replacing the one kept before.
+   *
+   * @param view
+   *   The view of a removed {@link Crouton}.
+   * @param style
+   *   The {@link Style} the view has been built or last bound with.
+   */
+  void recycle(FrameLayout view, Style style) {
+    this.view = view;
+    this.style = style;
+  }
+
+  /**
+   * Takes the kept view if it can be rebound to the provided {@link Style}.
+   *
+   * @param context
+   *   The {@link Context} the view has to belong to.
+   * @param style
+   *   The {@link Style} the view will be bound with.
+   *
+   * @return The view or <code>null</code> if none fits or it is still animating out.
+   */
+  FrameLayout obtain(Context context, Style style) {
+    if ((null == view) || (context != view.getContext()) || !style.isLayoutCompatible(this.style)
+        || (hasTextColor(style) != hasTextColor(this.style)) || isAnimating(view)) {
+      return null;
+    }
+    final FrameLayout obtained = view;
+    clear();
+    return obtained;
+  }
+
+  /** Drops the kept view if it belongs to the provided {@link Context}. */
+  void clear(Context context) {
+    if ((null != view) && (context == view.getContext())) {
+      clear();
+    }
+  }
+
+  /** Drops the kept view. */
+  void clear() {
+    view = null;
+    style = null;
+  }
+
+  private static boolean isAnimating(View view) {
+    final Animation animation = view.getAnimation();
+    return (null != animation) && !animation.hasEnded();
+  }
+
+  /** A view keeps the text color of the last style, so only styles that set one can replace it. */
+  private static boolean hasTextColor(Style style) {
+    return (Style.NOT_SET != style.textColorValue) || (0 != style.textColorResourceId);
+  }
+}
@@ -16,14 +16,20 @@
 
 package de.keyboardsurfer.android.widget.crouton;
 
+import android.content.ComponentCallbacks2;
 import android.view.View;
+import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
 import android.view.animation.TranslateAnimation;
 
 /** Builds the default animations for showing and hiding a {@link Crouton}. */
 final class DefaultAnimationsBuilder {
   private static final long DURATION = 400;
-  private static Animation slideInDownAnimation, slideOutUpAnimation;
+  private static final long REDUCED_DURATION = 150;
+  private static final long CONTENT_TRANSITION_DURATION = DURATION / 2;
+  /** Rough size of an {@link Animation} and the {@link android.view.animation.Transformation}s it holds. */
+  private static final long ANIMATION_BYTES_ESTIMATE = 256;
+  private static Animation slideInDownAnimation, slideOutUpAnimation, contentTransitionAnimation;
   private static int lastInAnimationHeight, lastOutAnimationHeight;
 
   private DefaultAnimationsBuilder() {
@@ -31,19 +37,23 @@ final class DefaultAnimationsBuilder {
   }
 
   /**
-   * @param croutonView
-   *   The croutonView which gets animated.
+   * @param croutonHeight
+   *   The measured height of the croutonView which gets animated.
+   * @param reduced
+   *   <code>true</code> for the shorter animation of the {@link DeviceProfile#REDUCED} profile.
    *
    * @return The default Animation for a showing {@link Crouton}.
    */
-  static Animation buildDefaultSlideInDownAnimation(View croutonView) {
-    if (!areLastMeasuredInAnimationHeightAndCurrentEqual(croutonView) || (null == slideInDownAnimation)) {
+  static Animation buildDefaultSlideInDownAnimation(int croutonHeight, boolean reduced) {
+    final long duration = reduced ? REDUCED_DURATION : DURATION;
+    if (!areLastMeasuredAnimationHeightAndCurrentEqual(lastInAnimationHeight, croutonHeight)
+        || (null == slideInDownAnimation) || (duration != slideInDownAnimation.getDuration())) {
       slideInDownAnimation = new TranslateAnimation(
-        0, 0,                               // X: from, to
-        -croutonView.getMeasuredHeight(), 0 // Y: from, to
+        0, 0,                // X: from, to
+        -croutonHeight, 0    // Y: from, to
       );
-      slideInDownAnimation.setDuration(DURATION);
-      setLastInAnimationHeight(croutonView.getMeasuredHeight());
+      slideInDownAnimation.setDuration(duration);
+      setLastInAnimationHeight(croutonHeight);
     }
     return slideInDownAnimation;
   }
@@ -51,31 +61,79 @@ final class DefaultAnimationsBuilder {
   /**
    * @param croutonView
    *   The croutonView which gets animated.
+   * @param reduced
+   *   <code>true</code> for the shorter animation of the {@link DeviceProfile#REDUCED} profile.
+   *
+   * @return The default Animation for a hiding {@link Crouton}.
+   */
+  static Animation buildDefaultSlideOutUpAnimation(View croutonView, boolean reduced) {
+    return buildDefaultSlideOutUpAnimation(croutonView.getMeasuredHeight(), reduced);
+  }
+
+  /**
+   * @param croutonHeight
+   *   The measured height of the croutonView which gets animated.
+   * @param reduced
+   *   <code>true</code> for the shorter animation of the {@link DeviceProfile#REDUCED} profile.
    *
    * @return The default Animation for a hiding {@link Crouton}.
    */
-  static Animation buildDefaultSlideOutUpAnimation(View croutonView) {
-    if (!areLastMeasuredOutAnimationHeightAndCurrentEqual(croutonView) || (null == slideOutUpAnimation)) {
+  static Animation buildDefaultSlideOutUpAnimation(int croutonHeight, boolean reduced) {
+    final long duration = reduced ? REDUCED_DURATION : DURATION;
+    if (!areLastMeasuredAnimationHeightAndCurrentEqual(lastOutAnimationHeight, croutonHeight)
+        || (null == slideOutUpAnimation) || (duration != slideOutUpAnimation.getDuration())) {
       slideOutUpAnimation = new TranslateAnimation(
-        0, 0,                               // X: from, to
-        0, -croutonView.getMeasuredHeight() // Y: from, to
+        0, 0,                // X: from, to
+        0, -croutonHeight    // Y: from, to
       );
-      slideOutUpAnimation.setDuration(DURATION);
-      setLastOutAnimationHeight(croutonView.getMeasuredHeight());
+      slideOutUpAnimation.setDuration(duration);
+      setLastOutAnimationHeight(croutonHeight);
     }
     return slideOutUpAnimation;
   }
 
-  private static boolean areLastMeasuredInAnimationHeightAndCurrentEqual(View croutonView) {
-    return areLastMeasuredAnimationHeightAndCurrentEqual(lastInAnimationHeight, croutonView);
+  /**
+   * @return The default Animation for the content of a {@link Crouton} that took over the view
+   * of the previous one.
+   */
+  static Animation buildDefaultContentTransitionAnimation() {
+    if (null == contentTransitionAnimation) {
+      contentTransitionAnimation = new AlphaAnimation(0, 1);
+      contentTransitionAnimation.setDuration(CONTENT_TRANSITION_DURATION);
+    }
+    return contentTransitionAnimation;
   }
 
-  private static boolean areLastMeasuredOutAnimationHeightAndCurrentEqual(View croutonView) {
-    return areLastMeasuredAnimationHeightAndCurrentEqual(lastOutAnimationHeight, croutonView);
+  /**
+   * Drops the cached default animations once the UI of the app is hidden.
+   *
+   * @param level
+   *   The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+   *
+   * @return The estimated number of bytes freed.
+   */
+  static long trim(int level) {
+    if (level < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      return 0;
+    }
+    int count = 0;
+    if (null != slideInDownAnimation) {
+      slideInDownAnimation = null;
+      count++;
+    }
+    if (null != slideOutUpAnimation) {
+      slideOutUpAnimation = null;
+      count++;
+    }
+    if (null != contentTransitionAnimation) {
+      contentTransitionAnimation = null;
+      count++;
+    }
+    return count * ANIMATION_BYTES_ESTIMATE;
   }
 
-  private static boolean areLastMeasuredAnimationHeightAndCurrentEqual(int lastHeight, View croutonView) {
-    return lastHeight == croutonView.getMeasuredHeight();
+  private static boolean areLastMeasuredAnimationHeightAndCurrentEqual(int lastHeight, int croutonHeight) {
+    return lastHeight == croutonHeight;
   }
 
   private static void setLastInAnimationHeight(int lastInAnimationHeight) {
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * Selects how much effort is spent on rendering {@link Crouton}s, see
+ * {@link Crouton#setDeviceProfile(DeviceProfile)}.
+ */
+public enum DeviceProfile {
+  /**
+   * Uses {@link #REDUCED} on low RAM devices and while battery saver is on, otherwise {@link #FULL}.
+   */
+  AUTOMATIC,
+
+  /** Renders {@link Crouton}s as styled, with the default animations and caches. */
+  FULL,
+
+  /**
+   * Shortens the default animations, shows solid colors instead of tiled and plain bitmap
+   * backgrounds and keeps smaller caches. Nine-patch, color and XML backgrounds are kept.
+   */
+  REDUCED
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+/**
+ * Resolves the {@link DeviceProfile} in effect. The low RAM state of the device is read once,
+ * the battery saver state is tracked through its broadcast instead of being queried for every
+ * {@link Crouton}. Cache sizes are adjusted whenever the resolved profile changes.
+ */
+final class DeviceProfileResolver extends BroadcastReceiver {
+  private static DeviceProfileResolver INSTANCE;
+
+  private DeviceProfile profile = DeviceProfile.AUTOMATIC;
+  private PowerManager powerManager;
+  private boolean initialized;
+  private boolean lowRamDevice;
+  private boolean powerSaveMode;
+  private boolean reduced;
+
+  private DeviceProfileResolver() {
+  }
+
+  /**
+   * @return The instance shared by all {@link Crouton}s.
+   */
+  static synchronized DeviceProfileResolver getInstance() {
+    if (null == INSTANCE) {
+      INSTANCE = new DeviceProfileResolver();
+    }
+
+    return INSTANCE;
+  }
+
+  /**
+   * Overrides the automatically selected profile.
+   */
+  void setProfile(DeviceProfile profile) {
+    this.profile = profile;
+    applyReduced();
+  }
+
+  /**
+   * @param context
+   *   Used to look up the device state the first time.
+   *
+   * @return <code>true</code> if {@link Crouton}s should be rendered with reduced effort.
+   */
+  boolean isReduced(Context context) {
+    if (DeviceProfile.AUTOMATIC == profile && !initialized && null != context) {
+      initialize(context.getApplicationContext());
+    }
+    return reduced;
+  }
+
+  @TargetApi(21)
+  private void initialize(Context context) {
+    initialized = true;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      final ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+      lowRamDevice = null != activityManager && activityManager.isLowRamDevice();
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+      if (null != powerManager) {
+        powerSaveMode = powerManager.isPowerSaveMode();
+        context.registerReceiver(this, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+      }
+    }
+    applyReduced();
+  }
+
+  @Override
+  @TargetApi(21)
+  public void onReceive(Context context, Intent intent) {
+    powerSaveMode = powerManager.isPowerSaveMode();
+    applyReduced();
+  }
+
+  private void applyReduced() {
+    final boolean reduced;
+    switch (profile) {
+      case FULL:
+        reduced = false;
+        break;
+      case REDUCED:
+        reduced = true;
+        break;
+      default:
+        reduced = lowRamDevice || powerSaveMode;
+        break;
+    }
+    if (reduced != this.reduced) {
+      this.reduced = reduced;
+      MeasureCache.getInstance().setReduced(reduced);
+      BackgroundCache.getInstance().setReduced(reduced);
+      // A pooled view may carry a background the new profile doesn't use.
+      CroutonViewPool.getInstance().clear();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Keeps the most recent scheduling events of the {@link Manager} in a fixed-size ring buffer, so
+ * what happened to a {@link Crouton} can be reconstructed from a dump.
+ * <p/>
+ * Events are stored in primitive arrays that are allocated once, recording an event doesn't
+ * allocate and only takes a few array writes.
+ */
+final class EventLog {
+  static final int QUEUED = 0;
+  static final int HELD = 1;
+  static final int DISPLAY = 2;
+  static final int DEFERRED = 3;
+  static final int ATTACHED = 4;
+  static final int LAID_OUT = 5;
+  static final int ANIMATED = 6;
+  static final int LAYOUT_TIMEOUT = 7;
+  static final int REMOVED = 8;
+  static final int REBOUND = 9;
+  static final int DISCARDED = 10;
+  static final int PAUSED = 11;
+  static final int RESUMED = 12;
+
+  private static final String[] NAMES = {
+      "QUEUED", "HELD", "DISPLAY", "DEFERRED", "ATTACHED", "LAID_OUT", "ANIMATED", "LAYOUT_TIMEOUT",
+      "REMOVED", "REBOUND", "DISCARDED", "PAUSED", "RESUMED"
+  };
+
+  private static final int CAPACITY = 256;
+
+  private final int[] ids = new int[CAPACITY];
+  private final byte[] types = new byte[CAPACITY];
+  private final long[] timestamps = new long[CAPACITY];
+  private final int[] hostHashes = new int[CAPACITY];
+  private final int[] queueDepths = new int[CAPACITY];
+  private long count;
+
+  /**
+   * Records an event, overwriting the oldest one once the buffer is full.
+   *
+   * @param type
+   *   One of the event constants.
+   * @param crouton
+   *   The {@link Crouton} the event is about.
+   * @param queueDepth
+   *   The number of queued {@link Crouton}s at the time.
+   * @param timestamp
+   *   The {@link System#nanoTime()} of the event.
+   */
+  synchronized void record(int type, Crouton crouton, int queueDepth, long timestamp) {
+    final int index = (int) (count % CAPACITY);
+    ids[index] = crouton.getId();
+    types[index] = (byte) type;
+    timestamps[index] = timestamp;
+    hostHashes[index] = System.identityHashCode(crouton.getHost());
+    queueDepths[index] = queueDepth;
+    count++;
+  }
+
+  /**
+   * Prints the recorded events, oldest first, with their age relative to now.
+   */
+  synchronized void dump(String prefix, PrintWriter writer) {
+    final long now = System.nanoTime();
+    final int size = (int) Math.min(count, CAPACITY);
+    writer.print(prefix);
+    writer.print("Recent events (");
+    writer.print(size);
+    writer.print(" of ");
+    writer.print(count);
+    writer.println("):");
+    for (long i = count - size; i < count; i++) {
+      final int index = (int) (i % CAPACITY);
+      writer.print(prefix);
+      writer.print("  ");
+      writer.print(String.format(Locale.US, "-%.3fs", (now - timestamps[index]) / 1e9));
+      writer.print(" #");
+      writer.print(ids[index]);
+      writer.print(' ');
+      writer.print(NAMES[types[index]]);
+      writer.print(" host=0x");
+      writer.print(Integer.toHexString(hostHashes[index]));
+      writer.print(" depth=");
+      writer.println(queueDepths[index]);
+    }
+  }
+}
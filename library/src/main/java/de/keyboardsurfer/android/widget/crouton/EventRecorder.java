@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends the events of the {@link EventLog} to a memory-mapped file as fixed-width binary records,
+ * so they survive the process and can be analyzed offline with the <code>tools</code> module.
+ * <p/>
+ * The file has a bounded size and wraps around once it is full. Recording an event only writes
+ * into the mapped memory, the system flushes it to the file.
+ * <p/>
+ * Layout, all values big endian:
+ * <pre>
+ * header (32 bytes): int magic, int version, int record size, int capacity in records,
+ *                    long number of records written, long reserved
+ * record (24 bytes): long System.nanoTime(), int crouton id, int host hash, int event type,
+ *                    int queue depth
+ * </pre>
+ * Record <code>n</code> is stored at slot <code>n % capacity</code>.
+ */
+final class EventRecorder {
+  static final String FILE_NAME = "crouton-events.bin";
+  static final int MAGIC = 0x4352544e; // "CRTN"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 32;
+  static final int RECORD_BYTES = 24;
+  private static final int COUNT_OFFSET = 16;
+  private static final int MIN_CAPACITY = 64;
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer buffer;
+  private final int end;
+  private long count;
+  private int offset;
+
+  private EventRecorder(RandomAccessFile file, MappedByteBuffer buffer, int capacity, long count) {
+    this.file = file;
+    this.buffer = buffer;
+    this.end = HEADER_BYTES + capacity * RECORD_BYTES;
+    this.count = count;
+    this.offset = HEADER_BYTES + (int) (count % capacity) * RECORD_BYTES;
+  }
+
+  /**
+   * Opens the log in the provided directory, continuing an existing one with the same capacity.
+   *
+   * @param directory
+   *   The directory to keep the log in, usually the cache directory of the app.
+   * @param maxBytes
+   *   The maximum size of the log file.
+   *
+   * @return The opened recorder.
+   *
+   * @throws IOException
+   *   If the file could not be created or mapped.
+   */
+  static EventRecorder open(File directory, int maxBytes) throws IOException {
+    final int capacity = Math.max(MIN_CAPACITY, (maxBytes - HEADER_BYTES) / RECORD_BYTES);
+    final long size = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+    final RandomAccessFile file = new RandomAccessFile(new File(directory, FILE_NAME), "rw");
+    try {
+      final boolean resume = file.length() == size && file.readInt() == MAGIC && file.readInt() == VERSION
+          && file.readInt() == RECORD_BYTES && file.readInt() == capacity;
+      file.setLength(size);
+      final MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      long count = 0;
+      if (resume) {
+        count = buffer.getLong(COUNT_OFFSET);
+      } else {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_BYTES);
+        buffer.putInt(12, capacity);
+        buffer.putLong(COUNT_OFFSET, 0);
+      }
+      return new EventRecorder(file, buffer, capacity, count);
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends an event, overwriting the oldest one once the log is full.
+   */
+  synchronized void record(long timestamp, int type, int croutonId, int hostHash, int queueDepth) {
+    final int offset = this.offset;
+    buffer.putLong(offset, timestamp);
+    buffer.putInt(offset + 8, croutonId);
+    buffer.putInt(offset + 12, hostHash);
+    buffer.putInt(offset + 16, type);
+    buffer.putInt(offset + 20, queueDepth);
+    // The count is written last, so a torn record is never counted.
+    count++;
+    buffer.putLong(COUNT_OFFSET, count);
+    this.offset = (offset + RECORD_BYTES == end) ? HEADER_BYTES : offset + RECORD_BYTES;
+  }
+
+  /** Flushes the log to the file and closes it. */
+  synchronized void close() {
+    buffer.force();
+    try {
+      file.close();
+    } catch (IOException e) {
+      // The mapped content has been written already.
+    }
+  }
+}
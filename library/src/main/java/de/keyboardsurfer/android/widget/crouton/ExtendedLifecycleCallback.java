@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * A {@link LifecycleCallback} that is notified of every phase of a {@link Crouton}, each with a
+ * timestamp taken from {@link System#nanoTime()}.
+ * <p/>
+ * The phases allow computing how long a {@link Crouton} waited in the queue and how long it was
+ * actually visible. {@link #onDisplayed()} and {@link #onRemoved()} are still called as before.
+ */
+public interface ExtendedLifecycleCallback extends LifecycleCallback {
+  /** Why a {@link Crouton} has been removed. */
+  public enum RemovalReason {
+    /** Its display time is over, or it could not be laid out in time. */
+    EXPIRED,
+    /** It has been hidden or cancelled, or all {@link Crouton}s have been cancelled. */
+    CANCELLED,
+    /** Its {@link android.app.Activity} or view group has been destroyed or garbage collected. */
+    HOST_DESTROYED
+  }
+
+  /**
+   * Will be called when your {@link Crouton} has been queued to be displayed.
+   *
+   * @param timestampNanos The time of the event, as of {@link System#nanoTime()}.
+   */
+  public void onQueued(long timestampNanos);
+
+  /**
+   * Will be called when the view of your {@link Crouton} has been added to the view hierarchy, or
+   * has taken over the view of the previous {@link Crouton}.
+   *
+   * @param timestampNanos The time of the event, as of {@link System#nanoTime()}.
+   */
+  public void onAttached(long timestampNanos);
+
+  /**
+   * Will be called when your {@link Crouton} is fully visible, once its in animation is over.
+   *
+   * @param timestampNanos The time of the event, as of {@link System#nanoTime()}.
+   */
+  public void onEnterAnimationFinished(long timestampNanos);
+
+  /**
+   * Will be called when the out animation of your {@link Crouton} has been started. Not called if
+   * it is removed without an out animation.
+   *
+   * @param timestampNanos The time of the event, as of {@link System#nanoTime()}.
+   * @param reason         Why the {@link Crouton} is being removed.
+   */
+  public void onExitStarted(long timestampNanos, RemovalReason reason);
+
+  /**
+   * Will be called when your {@link Crouton} has been taken off the queue and its view has been
+   * removed. Called for every queued {@link Crouton}, whether it has been displayed or not. If the
+   * next {@link Crouton} took over its view, {@link #onExitStarted(long, RemovalReason)} is skipped.
+   *
+   * @param timestampNanos The time of the event, as of {@link System#nanoTime()}.
+   * @param reason         Why the {@link Crouton} has been removed.
+   */
+  public void onRemoved(long timestampNanos, RemovalReason reason);
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * Counts values in fixed buckets. Recording and copying a histogram into another one with the
+ * same buckets don't allocate, so both can be done as often as needed.
+ * <p/>
+ * Each bucket counts the values up to and including its upper bound, a last bucket counts all
+ * values above the highest bound.
+ */
+public final class Histogram {
+  private final long[] upperBounds;
+  private final long[] counts;
+  private long totalCount;
+  private long sum;
+  private long max;
+
+  /**
+   * @param upperBounds The ascending upper bounds of the buckets.
+   */
+  public Histogram(long... upperBounds) {
+    if ((null == upperBounds) || (0 == upperBounds.length)) {
+      throw new IllegalArgumentException("At least one bucket bound is required");
+    }
+    for (int i = 1; i < upperBounds.length; i++) {
+      if (upperBounds[i] <= upperBounds[i - 1]) {
+        throw new IllegalArgumentException("Bucket bounds must be ascending");
+      }
+    }
+    this.upperBounds = upperBounds.clone();
+    this.counts = new long[upperBounds.length + 1];
+  }
+
+  /**
+   * Creates an empty histogram with the same buckets as the provided one, e.g. to take snapshots with.
+   */
+  public Histogram(Histogram other) {
+    this.upperBounds = other.upperBounds;
+    this.counts = new long[other.counts.length];
+  }
+
+  /** Counts a value. */
+  public void record(long value) {
+    int bucket = 0;
+    while ((bucket < upperBounds.length) && (value > upperBounds[bucket])) {
+      bucket++;
+    }
+    counts[bucket]++;
+    totalCount++;
+    sum += value;
+    if (value > max) {
+      max = value;
+    }
+  }
+
+  /**
+   * @return The number of buckets, including the one for values above the highest bound.
+   */
+  public int getBucketCount() {
+    return counts.length;
+  }
+
+  /**
+   * @return The upper bound of a bucket or {@link Long#MAX_VALUE} for the last bucket.
+   */
+  public long getUpperBound(int bucket) {
+    return bucket < upperBounds.length ? upperBounds[bucket] : Long.MAX_VALUE;
+  }
+
+  /**
+   * @return The number of values counted in a bucket.
+   */
+  public long getCount(int bucket) {
+    return counts[bucket];
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  public long getSum() {
+    return sum;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @param percentile A percentile between 0 and 100.
+   *
+   * @return The upper bound of the bucket holding the percentile, or the highest recorded value if
+   * that is lower, or 0 if nothing has been recorded.
+   */
+  public long getPercentile(double percentile) {
+    if (0 == totalCount) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(totalCount * Math.min(100, Math.max(0, percentile)) / 100);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank && 0 != counts[i]) {
+        return Math.min(getUpperBound(i), max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Copies the counts of this histogram into another one with the same buckets.
+   */
+  public void copyTo(Histogram target) {
+    if (target.counts.length != counts.length) {
+      throw new IllegalArgumentException("Histograms must have the same buckets");
+    }
+    System.arraycopy(counts, 0, target.counts, 0, counts.length);
+    target.totalCount = totalCount;
+    target.sum = sum;
+    target.max = max;
+  }
+
+  /** Clears all counts. */
+  public void reset() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = 0;
+    }
+    totalCount = 0;
+    sum = 0;
+    max = 0;
+  }
+
+  @Override
+  public String toString() {
+    return "Histogram{" +
+        "count=" + totalCount +
+        ", p50=" + getPercentile(50) +
+        ", p90=" + getPercentile(90) +
+        ", p99=" + getPercentile(99) +
+        ", max=" + max +
+        '}';
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Watches frame timing and scrolling of a window while a {@link Crouton} waits to be attached.
+ * Attaching is deferred while frames run over budget or the user is scrolling, but never for
+ * longer than the {@link Crouton}'s maximum deferral.
+ */
+final class JankMonitor implements ViewTreeObserver.OnScrollChangedListener {
+  /** Time without scroll events after which scrolling is considered finished. */
+  private static final long SCROLL_IDLE_NANOS = 100 * 1000000L;
+
+  private ViewTreeObserver observer;
+  private long waitStartNanos;
+  private long lastFrameTimeNanos;
+  private long lastScrollNanos;
+
+  /**
+   * Starts watching the window of the provided view.
+   *
+   * @param rootView
+   *   Any view of the window the {@link Crouton} is going to be attached to.
+   */
+  void start(View rootView) {
+    stop();
+    waitStartNanos = System.nanoTime();
+    lastFrameTimeNanos = 0;
+    lastScrollNanos = 0;
+    observer = rootView.getViewTreeObserver();
+    if (null != observer && observer.isAlive()) {
+      observer.addOnScrollChangedListener(this);
+    }
+  }
+
+  /**
+   * @param frameTimeNanos
+   *   The time the current frame started rendering.
+   * @param frameIntervalNanos
+   *   The frame budget of the display.
+   * @param maxDeferralMillis
+   *   The maximum time attaching may be deferred.
+   *
+   * @return <code>true</code> if attaching should wait for another frame.
+   */
+  boolean shouldDefer(long frameTimeNanos, long frameIntervalNanos, int maxDeferralMillis) {
+    final long previousFrameTimeNanos = lastFrameTimeNanos;
+    lastFrameTimeNanos = frameTimeNanos;
+
+    if (frameTimeNanos - waitStartNanos >= maxDeferralMillis * 1000000L) {
+      stop();
+      return false;
+    }
+    // The first frame is only observed, frame timing needs two samples.
+    if (0 == previousFrameTimeNanos) {
+      return true;
+    }
+
+    final boolean overBudget = frameTimeNanos - previousFrameTimeNanos > frameIntervalNanos * 3 / 2;
+    final boolean scrolling = 0 != lastScrollNanos && frameTimeNanos - lastScrollNanos < SCROLL_IDLE_NANOS;
+    if (overBudget || scrolling) {
+      return true;
+    }
+    stop();
+    return false;
+  }
+
+  /** Stops watching the window. */
+  void stop() {
+    if (null != observer && observer.isAlive()) {
+      observer.removeOnScrollChangedListener(this);
+    }
+    observer = null;
+  }
+
+  @Override
+  public void onScrollChanged() {
+    lastScrollNanos = System.nanoTime();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.os.Build;
+import android.util.Log;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Debugging aid that reports queued {@link Crouton}s whose {@link Activity} has been garbage
+ * collected or destroyed while they were still waiting to be displayed or removed.
+ * <p/>
+ * Each tracked {@link Crouton} is watched through a weak reference to its {@link Activity}
+ * registered with a {@link ReferenceQueue}. Reports are logged with the number of such
+ * {@link Crouton}s so far and the stack trace of where the {@link Crouton} has been created.
+ * Nothing is tracked or captured while the watcher is disabled.
+ */
+final class LeakWatcher {
+  private static final String TAG = "Crouton";
+
+  private static LeakWatcher INSTANCE;
+
+  private final ReferenceQueue<Activity> collectedActivities = new ReferenceQueue<Activity>();
+  private final List<TrackedCrouton> trackedCroutons = new ArrayList<TrackedCrouton>();
+  private volatile boolean enabled;
+  private int collectedCount;
+  private int destroyedCount;
+  private int pass;
+
+  private LeakWatcher() {
+  }
+
+  /**
+   * @return The instance shared by all {@link Crouton}s.
+   */
+  static synchronized LeakWatcher getInstance() {
+    if (null == INSTANCE) {
+      INSTANCE = new LeakWatcher();
+    }
+
+    return INSTANCE;
+  }
+
+  /**
+   * Enables or disables the watcher. Disabling it forgets all tracked {@link Crouton}s.
+   */
+  void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      trackedCroutons.clear();
+      while (null != collectedActivities.poll()) {
+        // drain
+      }
+    }
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return The stack trace of the caller if the watcher is enabled, else <code>null</code>.
+   */
+  Throwable captureCreationTrace() {
+    return enabled ? new Throwable("Crouton created here") : null;
+  }
+
+  /**
+   * Starts watching the {@link Activity} of a {@link Crouton} that has been queued.
+   */
+  void track(Crouton crouton) {
+    final Activity activity = crouton.getActivity();
+    if (!enabled || null == activity) {
+      return;
+    }
+    trackedCroutons.add(new TrackedCrouton(crouton, activity, collectedActivities));
+  }
+
+  /**
+   * Reports tracked {@link Crouton}s whose {@link Activity} has been garbage collected or destroyed
+   * since the last check and stops watching the ones that are no longer queued.
+   *
+   * @param croutonQueue
+   *   The {@link Crouton}s that are currently queued.
+   */
+  void check(CroutonQueue croutonQueue) {
+    if (!enabled) {
+      return;
+    }
+    // Mark the queued croutons once instead of searching the queue for every tracked one.
+    pass++;
+    for (int i = 0; i < croutonQueue.size(); i++) {
+      croutonQueue.get(i).setLeakCheckPass(pass);
+    }
+
+    Reference<? extends Activity> reference;
+    while (null != (reference = collectedActivities.poll())) {
+      final TrackedCrouton tracked = (TrackedCrouton) reference;
+      tracked.collected = true;
+      if (isQueued(tracked.crouton.get())) {
+        collectedCount++;
+        report("garbage collected", collectedCount, tracked);
+      }
+    }
+
+    // Compact the tracked croutons in place, dropping collected ones and the ones no longer queued.
+    final int size = trackedCroutons.size();
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      final TrackedCrouton tracked = trackedCroutons.get(i);
+      if (tracked.collected || !isQueued(tracked.crouton.get())) {
+        continue;
+      }
+      if (!tracked.destroyedReported && isDestroyed(tracked.get())) {
+        tracked.destroyedReported = true;
+        destroyedCount++;
+        report("destroyed", destroyedCount, tracked);
+      }
+      trackedCroutons.set(kept++, tracked);
+    }
+    for (int i = size - 1; i >= kept; i--) {
+      trackedCroutons.remove(i);
+    }
+  }
+
+  private boolean isQueued(Crouton crouton) {
+    return (null != crouton) && (pass == crouton.getLeakCheckPass());
+  }
+
+  private void report(String reason, int count, TrackedCrouton tracked) {
+    Log.w(TAG, "Activity of a queued Crouton has been " + reason + " (" + count + " so far): "
+        + tracked.description, tracked.creationTrace);
+  }
+
+  @TargetApi(17)
+  private static boolean isDestroyed(Activity activity) {
+    return (null != activity) && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1)
+        && activity.isDestroyed();
+  }
+
+  /**
+   * Weakly references a tracked {@link Crouton} and its {@link Activity}, so the watcher itself
+   * never keeps either of them alive.
+   */
+  private static final class TrackedCrouton extends WeakReference<Activity> {
+    final WeakReference<Crouton> crouton;
+    final String description;
+    final Throwable creationTrace;
+    boolean destroyedReported;
+    boolean collected;
+
+    TrackedCrouton(Crouton crouton, Activity activity, ReferenceQueue<Activity> queue) {
+      super(activity, queue);
+      this.crouton = new WeakReference<Crouton>(crouton);
+      this.description = activity.getClass().getName() + ", text=" + crouton.getText();
+      this.creationTrace = crouton.getCreationTrace();
+    }
+  }
+}
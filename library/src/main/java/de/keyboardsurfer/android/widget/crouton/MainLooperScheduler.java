@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * Runs tasks through a {@link Handler} of the main {@link Looper}, timed by
+ * {@link SystemClock#uptimeMillis()}, and frame callbacks through the main thread's
+ * {@link Choreographer}. This is the default {@link CroutonScheduler}.
+ */
+public final class MainLooperScheduler implements CroutonScheduler {
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  /** Looked up on first use, the instance is per thread and only the main thread's is used. */
+  private Choreographer choreographer;
+
+  @Override
+  public long uptimeMillis() {
+    return SystemClock.uptimeMillis();
+  }
+
+  @Override
+  public void execute(Runnable task, long delayMillis) {
+    handler.postDelayed(task, delayMillis);
+  }
+
+  @Override
+  public void cancel(Runnable task) {
+    handler.removeCallbacks(task);
+  }
+
+  @Override
+  public void postFrameCallback(Choreographer.FrameCallback callback) {
+    getChoreographer().postFrameCallback(callback);
+  }
+
+  @Override
+  public void removeFrameCallback(Choreographer.FrameCallback callback) {
+    getChoreographer().removeFrameCallback(callback);
+  }
+
+  private Choreographer getChoreographer() {
+    if (null == choreographer) {
+      choreographer = Choreographer.getInstance();
+    }
+    return choreographer;
+  }
+}
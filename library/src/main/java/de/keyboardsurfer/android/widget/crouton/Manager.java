@@ -18,45 +18,167 @@ package de.keyboardsurfer.android.widget.crouton;
 
 import android.annotation.TargetApi;
 import android.app.Activity;
+import android.app.Application;
 import android.content.Context;
 import android.content.res.Resources;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Message;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
-import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
-import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
+import android.view.animation.Animation;
 import android.widget.AdapterView;
 import android.widget.FrameLayout;
 import android.widget.RelativeLayout;
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import de.keyboardsurfer.android.widget.crouton.core.DisplaySequencer;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * Manages the lifecycle of {@link Crouton}s.
  */
-final class Manager extends Handler {
-  private static final class Messages {
-    private Messages() { /* no-op */ }
-
-    public static final int DISPLAY_CROUTON = 0xc2007;
-    public static final int ADD_CROUTON_TO_VIEW = 0xc20074dd;
-    public static final int REMOVE_CROUTON = 0xc2007de1;
-  }
+final class Manager {
+  private static final String TAG = "Crouton";
+  private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+  /** Time after which a {@link Crouton} that has not been laid out, e.g. within a hidden host, is dropped. */
+  private static final long LAYOUT_TIMEOUT_MILLIS = 2000;
+  /**
+   * Frames after the end of an out animation that the next {@link Crouton} waits at most, in case
+   * the host isn't drawn and the animation never reports its end.
+   */
+  private static final int EXIT_FALLBACK_FRAMES = 4;
 
   private static Manager INSTANCE;
 
-  private final Queue<Crouton> croutonQueue;
+  private final CroutonQueue croutonQueue;
+  private final CroutonTask attachTask;
+  private final CroutonTask enterAnimationTask;
+  private final CroutonTask layoutTimeoutTask;
+  private final CroutonTask hostDetachedTask;
+  private final CroutonFrameCallback attachFrameCallback;
+  private final CroutonFrameCallback animationFrameCallback;
+  private final LayoutHook layoutHook;
+  private final DetachHook detachHook;
+  private final ExitHook exitHook;
+  private final AccessibilityAnnouncer accessibilityAnnouncer;
+  private final JankMonitor jankMonitor;
+  private final StartupGate startupGate;
+  private final LeakWatcher leakWatcher;
+  private final MemoryTrimmer memoryTrimmer;
+  private final TextPrecomputer textPrecomputer;
+  private final CroutonViewPool viewPool;
+  private final EventLog eventLog;
+  private final DisplaySequencer<Crouton> sequencer;
+  private CroutonScheduler scheduler;
+  private volatile EventRecorder eventRecorder;
+  private long frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+  private long frameOverrunCount;
+  private boolean jankAwareDeferralEnabled;
+  private boolean startupGateEnabled;
+  private boolean croutonHostEnabled;
+  private boolean rebindingEnabled;
+  private boolean insetsPositioningEnabled;
+  private boolean insetsWithoutHostReported;
+  private int actionBarContainerId;
+  private ActivityWatcher activityWatcher;
+  private MetricsSink metricsSink;
 
   private Manager() {
-    croutonQueue = new LinkedBlockingQueue<Crouton>();
+    croutonQueue = new CroutonQueue();
+    scheduler = new MainLooperScheduler();
+    layoutHook = new LayoutHook();
+    detachHook = new DetachHook();
+    exitHook = new ExitHook();
+    accessibilityAnnouncer = new AccessibilityAnnouncer(scheduler);
+    jankMonitor = new JankMonitor();
+    startupGate = new StartupGate(this);
+    leakWatcher = LeakWatcher.getInstance();
+    memoryTrimmer = new MemoryTrimmer();
+    textPrecomputer = TextPrecomputer.getInstance();
+    viewPool = CroutonViewPool.getInstance();
+    eventLog = new EventLog();
+    sequencer = new DisplaySequencer<Crouton>(croutonQueue, scheduler, scheduler, new CroutonDisplay());
+    attachTask = new CroutonTask() {
+      @Override
+      void onRun(Crouton crouton) {
+        // Attach at the start of the next frame so measure and layout don't
+        // land in the middle of one that is already being drawn.
+        if (null != crouton.getActivity()) {
+          updateFrameInterval(crouton.getActivity());
+          if (jankAwareDeferralEnabled) {
+            jankMonitor.start(crouton.getActivity().getWindow().getDecorView());
+          }
+        }
+        attachFrameCallback.post(crouton);
+      }
+    };
+    enterAnimationTask = new CroutonTask() {
+      @Override
+      void onRun(Crouton crouton) {
+        final ExtendedLifecycleCallback callback = getExtendedCallback(crouton);
+        if (null != callback) {
+          callback.onEnterAnimationFinished(System.nanoTime());
+        }
+      }
+    };
+    layoutTimeoutTask = new CroutonTask() {
+      @Override
+      void onRun(Crouton crouton) {
+        log(EventLog.LAYOUT_TIMEOUT, crouton);
+        if (null != metricsSink) {
+          metricsSink.recordLayoutTimeout();
+        }
+        layoutHook.detach(crouton);
+        removeCrouton(crouton, ExtendedLifecycleCallback.RemovalReason.EXPIRED);
+        if (null != crouton.getLifecycleCallback()) {
+          crouton.getLifecycleCallback().onRemoved();
+        }
+      }
+    };
+    hostDetachedTask = new CroutonTask() {
+      @Override
+      void onRun(Crouton crouton) {
+        onHostDetached(crouton);
+      }
+    };
+    attachFrameCallback = new CroutonFrameCallback() {
+      @Override
+      void onFrame(Crouton crouton, long frameTimeNanos) {
+        if (jankAwareDeferralEnabled && jankMonitor.shouldDefer(frameTimeNanos, frameIntervalNanos,
+            crouton.getConfiguration().maxDeferralInMilliseconds)) {
+          log(EventLog.DEFERRED, crouton);
+          post(crouton);
+          return;
+        }
+        final boolean traced = CroutonTrace.beginSection(CroutonTrace.ATTACH);
+        try {
+          addCroutonToView(crouton);
+        } finally {
+          CroutonTrace.endSection(traced);
+        }
+      }
+    };
+    animationFrameCallback = new CroutonFrameCallback() {
+      @Override
+      void onFrame(Crouton crouton, long frameTimeNanos) {
+        final boolean traced = CroutonTrace.beginSection(CroutonTrace.START_ANIMATION);
+        try {
+          startInAnimation(crouton);
+        } finally {
+          CroutonTrace.endSection(traced);
+        }
+      }
+    };
   }
 
   /**
@@ -77,109 +199,67 @@ final class Manager extends Handler {
    *     The {@link Crouton} to be displayed.
    */
   void add(Crouton crouton) {
-    croutonQueue.add(crouton);
-    displayCrouton();
+    final boolean traced = CroutonTrace.beginSection(CroutonTrace.ENQUEUE);
+    try {
+      CroutonTrace.beginAsync(crouton);
+      if (null != metricsSink) {
+        crouton.setEnqueuedNanos(System.nanoTime());
+      }
+      final ExtendedLifecycleCallback callback = getExtendedCallback(crouton);
+      if (null != callback) {
+        callback.onQueued(System.nanoTime());
+      }
+      if (startupGateEnabled && startupGate.hold(crouton)) {
+        log(EventLog.HELD, crouton);
+        return;
+      }
+      leakWatcher.track(crouton);
+      croutonQueue.add(crouton);
+      log(EventLog.QUEUED, crouton);
+      textPrecomputer.prepare(crouton);
+      if (null != metricsSink) {
+        metricsSink.recordQueueDepth(croutonQueue.size());
+      }
+      displayCrouton();
+    } finally {
+      CroutonTrace.endSection(traced);
+    }
   }
 
   /**
-   * Displays the next {@link Crouton} within the queue.
+   * Inserts several {@link Crouton}s to be displayed at once.
+   *
+   * @param croutons
+   *     The {@link Crouton}s to be displayed.
    */
-  private void displayCrouton() {
-    if (croutonQueue.isEmpty()) {
-      return;
+  void addAll(List<Crouton> croutons) {
+    croutonQueue.addAll(croutons);
+    for (int i = 0; i < croutons.size(); i++) {
+      leakWatcher.track(croutons.get(i));
+      log(EventLog.QUEUED, croutons.get(i));
+      textPrecomputer.prepare(croutons.get(i));
     }
-
-    // First peek whether the Crouton has an activity.
-    final Crouton currentCrouton = croutonQueue.peek();
-
-    // If the activity is null we poll the Crouton off the queue.
-    if (null == currentCrouton.getActivity()) {
-      croutonQueue.poll();
-    }
-
-    if (!currentCrouton.isShowing()) {
-      // Display the Crouton
-      sendMessage(currentCrouton, Messages.ADD_CROUTON_TO_VIEW);
-      if (null != currentCrouton.getLifecycleCallback()) {
-        currentCrouton.getLifecycleCallback().onDisplayed();
-      }
-    } else {
-      sendMessageDelayed(currentCrouton, Messages.DISPLAY_CROUTON, calculateCroutonDuration(currentCrouton));
+    if (null != metricsSink) {
+      metricsSink.recordQueueDepth(croutonQueue.size());
     }
-  }
-
-  private long calculateCroutonDuration(Crouton crouton) {
-    long croutonDuration = crouton.getConfiguration().durationInMilliseconds;
-    croutonDuration += crouton.getInAnimation().getDuration();
-    croutonDuration += crouton.getOutAnimation().getDuration();
-    return croutonDuration;
+    displayCrouton();
   }
 
   /**
-   * Sends a {@link Crouton} within a {@link Message}.
-   *
-   * @param crouton
-   *     The {@link Crouton} that should be sent.
-   * @param messageId
-   *     The {@link Message} id.
+   * Displays the next {@link Crouton} within the queue.
    */
-  private void sendMessage(Crouton crouton, final int messageId) {
-    final Message message = obtainMessage(messageId);
-    message.obj = crouton;
-    sendMessage(message);
+  private void displayCrouton() {
+    leakWatcher.check(croutonQueue);
+    sequencer.dispatch();
   }
 
   /**
-   * Sends a {@link Crouton} within a delayed {@link Message}.
-   *
-   * @param crouton
-   *     The {@link Crouton} that should be sent.
-   * @param messageId
-   *     The {@link Message} id.
-   * @param delay
-   *     The delay in milliseconds.
+   * @return The time until the {@link Crouton} expires once it has entered, or
+   * {@link DisplaySequencer#UNTIMED} if it is displayed infinitely.
    */
-  private void sendMessageDelayed(Crouton crouton, final int messageId, final long delay) {
-    Message message = obtainMessage(messageId);
-    message.obj = crouton;
-    sendMessageDelayed(message, delay);
-  }
-
-  /*
-   * (non-Javadoc)
-   *
-   * @see android.os.Handler#handleMessage(android.os.Message)
-   */
-  @Override
-  public void handleMessage(Message message) {
-    final Crouton crouton = (Crouton) message.obj;
-    if (null == crouton) {
-      return;
-    }
-    switch (message.what) {
-      case Messages.DISPLAY_CROUTON: {
-        displayCrouton();
-        break;
-      }
-
-      case Messages.ADD_CROUTON_TO_VIEW: {
-        addCroutonToView(crouton);
-        break;
-      }
-
-      case Messages.REMOVE_CROUTON: {
-        removeCrouton(crouton);
-        if (null != crouton.getLifecycleCallback()) {
-          crouton.getLifecycleCallback().onRemoved();
-        }
-        break;
-      }
-
-      default: {
-        super.handleMessage(message);
-        break;
-      }
-    }
+  private static long calculateDisplayMillis(Crouton crouton, long enterMillis) {
+    final int duration = crouton.getConfiguration().durationInMilliseconds;
+    return (Configuration.DURATION_INFINITE == duration) ? DisplaySequencer.UNTIMED : duration + enterMillis;
   }
 
   /**
@@ -194,6 +274,17 @@ final class Manager extends Handler {
       return;
     }
 
+    // the host might have been garbage collected or destroyed since the crouton has been sent
+    if (crouton.isHostDestroyed()) {
+      if (croutonQueue.peek() == crouton) {
+        croutonQueue.poll();
+      }
+      onDiscarded(crouton, ExtendedLifecycleCallback.RemovalReason.HOST_DESTROYED);
+      crouton.releaseHost();
+      displayCrouton();
+      return;
+    }
+
     final View croutonView = crouton.getView();
     if (null == croutonView.getParent()) {
       ViewGroup.LayoutParams params = croutonView.getLayoutParams();
@@ -204,7 +295,9 @@ final class Manager extends Handler {
       // display Crouton in ViewGroup if it has been supplied
       if (null != crouton.getViewGroup()) {
         final ViewGroup croutonViewGroup = crouton.getViewGroup();
-        if (shouldAddViewWithoutPosition(croutonViewGroup)) {
+        if (croutonHostEnabled && CroutonHost.canHost(croutonViewGroup)) {
+          CroutonHost.obtain(croutonViewGroup).addView(croutonView, params);
+        } else if (shouldAddViewWithoutPosition(croutonViewGroup)) {
           croutonViewGroup.addView(croutonView, params);
         } else {
           croutonViewGroup.addView(croutonView, 0, params);
@@ -214,36 +307,61 @@ final class Manager extends Handler {
         if (null == activity || activity.isFinishing()) {
           return;
         }
-        handleTranslucentActionBar((ViewGroup.MarginLayoutParams) params, activity);
-        handleActionBarOverlay((ViewGroup.MarginLayoutParams) params, activity);
-
-        activity.addContentView(croutonView, params);
+        final ViewGroup contentView = (ViewGroup) activity.findViewById(android.R.id.content);
+        if (insetsPositioningEnabled && !croutonHostEnabled && !insetsWithoutHostReported) {
+          insetsWithoutHostReported = true;
+          Log.w(TAG, "Insets positioning requires Crouton.setCroutonHostEnabled(true), "
+              + "croutons are positioned by the action bar instead");
+        }
+        if (insetsPositioningEnabled && croutonHostEnabled
+            && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH) {
+          final CroutonHost host = CroutonHost.obtain(contentView, true);
+          ((ViewGroup.MarginLayoutParams) params).topMargin = host.getTopInset();
+          host.addView(croutonView, params);
+        } else if (croutonHostEnabled) {
+          handleTranslucentActionBar((ViewGroup.MarginLayoutParams) params, activity);
+          handleActionBarOverlay((ViewGroup.MarginLayoutParams) params, activity);
+          CroutonHost.obtain(contentView).addView(croutonView, params);
+        } else {
+          handleTranslucentActionBar((ViewGroup.MarginLayoutParams) params, activity);
+          handleActionBarOverlay((ViewGroup.MarginLayoutParams) params, activity);
+          activity.addContentView(croutonView, params);
+        }
       }
     }
 
     croutonView.requestLayout(); // This is needed so the animation can use the measured with/height
-    ViewTreeObserver observer = croutonView.getViewTreeObserver();
-    if (null != observer) {
-      observer.addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-        @Override
-        @TargetApi(16)
-        public void onGlobalLayout() {
-          if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
-            croutonView.getViewTreeObserver().removeGlobalOnLayoutListener(this);
-          } else {
-            croutonView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
-          }
+    layoutHook.attach(crouton, croutonView);
+    detachHook.attach(crouton, croutonView);
+    log(EventLog.ATTACHED, crouton);
 
-          if(crouton.getInAnimation() != null) {
-            croutonView.startAnimation(crouton.getInAnimation());
-            announceForAccessibilityCompat(crouton.getActivity(), crouton.getText());
-            if (Configuration.DURATION_INFINITE != crouton.getConfiguration().durationInMilliseconds) {
-              sendMessageDelayed(crouton, Messages.REMOVE_CROUTON,
-                  crouton.getConfiguration().durationInMilliseconds + crouton.getInAnimation().getDuration());
-            }
-          }
-        }
-      });
+    final ExtendedLifecycleCallback callback = getExtendedCallback(crouton);
+    if (null != callback) {
+      callback.onAttached(System.nanoTime());
+    }
+  }
+
+  /**
+   * Starts the in animation of an attached {@link Crouton} and schedules its removal.
+   *
+   * @param crouton
+   *     The {@link Crouton} that has been laid out.
+   */
+  private void startInAnimation(Crouton crouton) {
+    final View croutonView = crouton.getView();
+    if (null == croutonView.getParent()) {
+      return;
+    }
+
+    if(crouton.getInAnimation() != null) {
+      croutonView.startAnimation(crouton.getInAnimation());
+      recordDisplayLatency(crouton);
+      log(EventLog.ANIMATED, crouton);
+      if (null != getExtendedCallback(crouton)) {
+        enterAnimationTask.schedule(crouton, crouton.getInAnimation().getDuration());
+      }
+      announceForAccessibilityCompat(crouton.getActivity(), crouton.getText());
+      sequencer.onEntered(crouton, calculateDisplayMillis(crouton, crouton.getInAnimation().getDuration()));
     }
   }
 
@@ -276,7 +394,9 @@ final class Manager extends Handler {
   }
 
   private void setActionBarMargin(ViewGroup.MarginLayoutParams params, Activity activity) {
-    final int actionBarContainerId = Resources.getSystem().getIdentifier("action_bar_container", "id", "android");
+    if (0 == actionBarContainerId) {
+      actionBarContainerId = Resources.getSystem().getIdentifier("action_bar_container", "id", "android");
+    }
     final View actionBarContainer = activity.findViewById(actionBarContainerId);
     // The action bar is present: the app is using a Holo theme.
     if (null != actionBarContainer) {
@@ -293,35 +413,161 @@ final class Manager extends Handler {
    *     removed.
    */
   protected void removeCrouton(Crouton crouton) {
+    removeCrouton(crouton, ExtendedLifecycleCallback.RemovalReason.CANCELLED);
+  }
+
+  private void removeCrouton(Crouton crouton, ExtendedLifecycleCallback.RemovalReason reason) {
+    final boolean traced = CroutonTrace.beginSection(CroutonTrace.REMOVE);
+    try {
+      removeCroutonView(crouton, reason);
+    } finally {
+      CroutonTrace.endSection(traced);
+    }
+  }
+
+  private void removeCroutonView(Crouton crouton, ExtendedLifecycleCallback.RemovalReason reason) {
     // If the crouton hasn't been displayed yet a `Crouton.hide()` will fail to hide
-    // it since the DISPLAY message might still be in the queue. Remove all messages
+    // it since the display task might still be pending. Cancel all tasks
     // for this crouton.
-    removeAllMessagesForCrouton(crouton);
+    cancelAllTasksForCrouton(crouton);
 
     View croutonView = crouton.getView();
     ViewGroup croutonParentView = (ViewGroup) croutonView.getParent();
 
     if (null != croutonParentView) {
-      croutonView.startAnimation(crouton.getOutAnimation());
+      if (rebindingEnabled && croutonQueue.peek() == crouton) {
+        final Crouton next = nextQueuedCrouton();
+        if (null != next && next.canRebind(crouton)) {
+          rebindCrouton(crouton, next, reason);
+          return;
+        }
+      }
+
+      final Animation outAnimation = crouton.getOutAnimation();
+      exitHook.attach(crouton, outAnimation);
+      croutonView.startAnimation(outAnimation);
+      CroutonTrace.endAsync(crouton);
+      final ExtendedLifecycleCallback callback = getExtendedCallback(crouton);
+      if (null != callback) {
+        callback.onExitStarted(System.nanoTime(), reason);
+      }
 
       // Remove the Crouton from the queue.
       Crouton removed = croutonQueue.poll();
+      log(EventLog.REMOVED, crouton);
 
       // Remove the crouton from the view's parent.
       croutonParentView.removeView(croutonView);
+
+      // Display the next crouton once the out animation has ended and its view is free, which the
+      // exit hook reports. A host that isn't drawn never ends it, so the next crouton is displayed
+      // a few frames after the animation should have ended at the latest. Started before the
+      // callbacks run, so a crouton they show waits for the exit as well.
+      sequencer.onExited(crouton, outAnimation.getDuration() + EXIT_FALLBACK_FRAMES * frameIntervalNanos / 1000000);
       if (null != removed) {
         removed.detachActivity();
         removed.detachViewGroup();
         if (null != removed.getLifecycleCallback()) {
           removed.getLifecycleCallback().onRemoved();
         }
+        dispatchRemoved(removed, reason);
         removed.detachLifecycleCallback();
       }
+    }
+  }
+
+  /**
+   * Drops the displayed {@link Crouton} once its view has been detached from the window by someone
+   * else, e.g. because its {@link Activity} has been destroyed without clearing its
+   * {@link Crouton}s. Otherwise the queue would keep the {@link Crouton}, its view and its
+   * {@link Activity} alive, forever for one that is displayed infinitely.
+   */
+  private void onHostDetached(Crouton crouton) {
+    final View croutonView = crouton.getView();
+    if ((croutonQueue.peek() != crouton) || (null != croutonView.getWindowToken())) {
+      return;
+    }
+    cancelAllTasksForCrouton(crouton);
+    croutonQueue.poll();
+    onDiscarded(crouton, ExtendedLifecycleCallback.RemovalReason.HOST_DESTROYED);
+    if (null != crouton.getLifecycleCallback()) {
+      crouton.getLifecycleCallback().onRemoved();
+    }
+    if (croutonView.getParent() instanceof ViewGroup) {
+      ((ViewGroup) croutonView.getParent()).removeView(croutonView);
+    }
+    viewPool.clear(croutonView.getContext());
+    crouton.releaseHost();
+    displayCrouton();
+  }
+
+  /**
+   * Restarts the display duration of a showing {@link Crouton}.
+   *
+   * @param crouton
+   *     The {@link Crouton} that should be displayed for its full duration again.
+   */
+  void resetDuration(Crouton crouton) {
+    sequencer.resetDuration(crouton, crouton.getConfiguration().durationInMilliseconds);
+  }
+
+  /**
+   * @return The {@link Crouton} queued after the one currently displayed or <code>null</code>.
+   */
+  private Crouton nextQueuedCrouton() {
+    return croutonQueue.get(1);
+  }
+
+  /**
+   * Replaces the displayed {@link Crouton} with the next one while keeping its view attached.
+   * Only text, image and colors are swapped and the change is animated as a content transition.
+   *
+   * @param current
+   *     The {@link Crouton} that is currently displayed.
+   * @param next
+   *     The {@link Crouton} that takes over the view.
+   * @param reason
+   *     Why the current {@link Crouton} is being removed.
+   */
+  private void rebindCrouton(Crouton current, Crouton next, ExtendedLifecycleCallback.RemovalReason reason) {
+    croutonQueue.poll();
+    log(EventLog.REMOVED, current);
+    log(EventLog.REBOUND, next);
+    CroutonTrace.endAsync(current);
+    next.rebind(current);
+    detachHook.attach(next, next.getView());
+    current.detachActivity();
+    current.detachViewGroup();
+    if (null != current.getLifecycleCallback()) {
+      current.getLifecycleCallback().onRemoved();
+    }
+    dispatchRemoved(current, reason);
+    current.detachLifecycleCallback();
 
-      // Send a message to display the next crouton but delay it by the out
-      // animation duration to make sure it finishes
-      sendMessageDelayed(crouton, Messages.DISPLAY_CROUTON, crouton.getOutAnimation().getDuration());
+    if (null != next.getLifecycleCallback()) {
+      next.getLifecycleCallback().onDisplayed();
+    }
+    final ExtendedLifecycleCallback nextCallback = getExtendedCallback(next);
+    if (null != nextCallback) {
+      nextCallback.onAttached(System.nanoTime());
+    }
+    if (null != metricsSink) {
+      metricsSink.recordCoalesced();
+      recordDisplayLatency(next);
+    }
+    final ViewGroup croutonView = (ViewGroup) next.getView();
+    long transitionDuration = 0;
+    // The reduced profile swaps the content without a transition.
+    if (!next.isReducedProfile()) {
+      final Animation contentTransition = DefaultAnimationsBuilder.buildDefaultContentTransitionAnimation();
+      croutonView.getChildAt(0).startAnimation(contentTransition);
+      transitionDuration = contentTransition.getDuration();
+    }
+    announceForAccessibilityCompat(next.getActivity(), next.getText());
+    if (null != nextCallback) {
+      enterAnimationTask.schedule(next, transitionDuration);
     }
+    sequencer.onEntered(next, calculateDisplayMillis(next, transitionDuration));
   }
 
   /**
@@ -332,47 +578,60 @@ final class Manager extends Handler {
    *     The {@link Crouton} that should be removed.
    */
   void removeCroutonImmediately(Crouton crouton) {
+    if (startupGate.remove(crouton)) {
+      return;
+    }
     // if Crouton has already been displayed then it may not be in the queue (because it was popped).
     // This ensures the displayed Crouton is removed from its parent immediately, whether another instance
     // of it exists in the queue or not.
-    // Note: crouton.isShowing() is false here even if it really is showing, as croutonView object in
-    // Crouton seems to be out of sync with reality!
-    if (null != crouton.getActivity() && null != crouton.getView() && null != crouton.getView().getParent()) {
-      ((ViewGroup) crouton.getView().getParent()).removeView(crouton.getView());
-
-      // remove any messages pending for the crouton
-      removeAllMessagesForCrouton(crouton);
-    }
-    // remove any matching croutons from queue
-    final Iterator<Crouton> croutonIterator = croutonQueue.iterator();
-    while (croutonIterator.hasNext()) {
-      final Crouton c = croutonIterator.next();
+    final boolean attached = (null != crouton.getActivity()) && (null != crouton.getView())
+        && (null != crouton.getView().getParent());
+    int queuedIndex = -1;
+    for (int i = 0; i < croutonQueue.size(); i++) {
+      final Crouton c = croutonQueue.get(i);
       if (c.equals(crouton) && (null != c.getActivity())) {
-        // remove the crouton from the content view
-        removeCroutonFromViewParent(crouton);
-
-        // remove any messages pending for the crouton
-        removeAllMessagesForCrouton(c);
-
-        // remove the crouton from the queue
-        croutonIterator.remove();
-
-        // we have found our crouton so just break
+        queuedIndex = i;
         break;
       }
     }
+    if (!attached && (queuedIndex < 0)) {
+      return;
+    }
+
+    if (attached) {
+      log(EventLog.REMOVED, crouton);
+    }
+    // Reported once and while the view is still attached, so a displayed crouton is not counted as dropped.
+    if (queuedIndex >= 0) {
+      onDiscarded(crouton, ExtendedLifecycleCallback.RemovalReason.CANCELLED);
+    } else {
+      CroutonTrace.endAsync(crouton);
+      dispatchRemoved(crouton, ExtendedLifecycleCallback.RemovalReason.CANCELLED);
+    }
+    if (attached) {
+      ((ViewGroup) crouton.getView().getParent()).removeView(crouton.getView());
+    }
+
+    // cancel any tasks pending for the crouton
+    cancelAllTasksForCrouton(crouton);
+    if (queuedIndex >= 0) {
+      croutonQueue.removeAt(queuedIndex);
+    }
   }
 
   /**
    * Removes all {@link Crouton}s from the queue.
    */
   void clearCroutonQueue() {
-    removeAllMessages();
+    cancelAllTasks();
+    startupGate.clear();
+    viewPool.clear();
 
     // remove any views that may already have been added to the activity's
     // content view
-    for (Crouton crouton : croutonQueue) {
-      removeCroutonFromViewParent(crouton);
+    for (int i = 0; i < croutonQueue.size(); i++) {
+      onDiscarded(croutonQueue.get(i), ExtendedLifecycleCallback.RemovalReason.CANCELLED);
+      removeCroutonFromViewParent(croutonQueue.get(i));
     }
     croutonQueue.clear();
   }
@@ -382,21 +641,93 @@ final class Manager extends Handler {
    * crouton from {@link Activity}s content view immediately.
    */
   void clearCroutonsForActivity(Activity activity) {
-    Iterator<Crouton> croutonIterator = croutonQueue.iterator();
-    while (croutonIterator.hasNext()) {
-      Crouton crouton = croutonIterator.next();
-      if ((null != crouton.getActivity()) && crouton.getActivity().equals(activity)) {
-        // remove the crouton from the content view
-        removeCroutonFromViewParent(crouton);
+    startupGate.clear(activity);
+    if (null == activity) {
+      return;
+    }
+    viewPool.clear(activity);
+    // removes the croutons of the activity at once and discards only them
+    sequencer.removeAll(activity);
+  }
 
-        removeAllMessagesForCrouton(crouton);
+  /**
+   * Registers an {@link ActivityWatcher} with the provided {@link Application}, so the
+   * {@link Crouton}s of its activities are paused, resumed and cleared automatically, and the
+   * {@link MemoryTrimmer} so caches are trimmed under memory pressure.
+   * Subsequent calls have no effect.
+   */
+  @TargetApi(14)
+  void install(Application application) {
+    if (null != activityWatcher) {
+      return;
+    }
+    activityWatcher = new ActivityWatcher(this);
+    application.registerActivityLifecycleCallbacks(activityWatcher);
+    application.registerComponentCallbacks(memoryTrimmer);
+  }
 
-        // remove the crouton from the queue
-        croutonIterator.remove();
-      }
+  /**
+   * Overrides the automatically selected {@link DeviceProfile}.
+   */
+  void setDeviceProfile(DeviceProfile profile) {
+    DeviceProfileResolver.getInstance().setProfile(profile);
+  }
+
+  /**
+   * Enables or disables the trace sections of {@link CroutonTrace}.
+   */
+  void setTracingEnabled(boolean enabled) {
+    CroutonTrace.setEnabled(enabled);
+  }
+
+  /**
+   * Trims the caches held by {@link Crouton}s, see {@link MemoryTrimmer#trim(int)}.
+   *
+   * @return The number of bytes freed, per cache.
+   */
+  Map<String, Long> trimMemory(int level) {
+    return memoryTrimmer.trim(level);
+  }
+
+  private boolean isStopped(Activity activity) {
+    return null != activityWatcher && null != activity && activityWatcher.isStopped(activity);
+  }
+
+  /**
+   * Stops the display timer of the displayed {@link Crouton} of a stopped {@link Activity}, or
+   * detaches it again if it has not been shown yet.
+   */
+  void pauseCroutonsForActivity(Activity activity) {
+    final Crouton current = croutonQueue.peek();
+    if (null == current || activity != current.getActivity()) {
+      return;
+    }
+    log(EventLog.PAUSED, current);
+    if (!sequencer.pause(current) && isAttaching(current)) {
+      cancelAllTasksForCrouton(current);
+      removeCroutonFromViewParent(current);
+    }
+  }
+
+  /**
+   * Restarts the display timer paused by {@link #pauseCroutonsForActivity(Activity)} with the
+   * remaining time, or displays the next {@link Crouton} if it belongs to the started {@link Activity}.
+   */
+  void resumeCroutonsForActivity(Activity activity) {
+    final Crouton resumed = sequencer.resume(activity);
+    if (null != resumed) {
+      log(EventLog.RESUMED, resumed);
     }
   }
 
+  /**
+   * @return <code>true</code> if the {@link Crouton} is on its way to be attached or started.
+   */
+  private boolean isAttaching(Crouton crouton) {
+    return attachTask.isPending(crouton) || attachFrameCallback.isPending(crouton)
+        || layoutHook.isAttached(crouton) || animationFrameCallback.isPending(crouton);
+  }
+
   private void removeCroutonFromViewParent(Crouton crouton) {
     if (crouton.isShowing()) {
       ViewGroup parent = (ViewGroup) crouton.getView().getParent();
@@ -406,31 +737,593 @@ final class Manager extends Handler {
     }
   }
 
-  private void removeAllMessages() {
-    removeMessages(Messages.ADD_CROUTON_TO_VIEW);
-    removeMessages(Messages.DISPLAY_CROUTON);
-    removeMessages(Messages.REMOVE_CROUTON);
+  private void cancelAllTasks() {
+    attachTask.cancel();
+    enterAnimationTask.cancel();
+    sequencer.cancel();
+    layoutHook.detach();
+    detachHook.detach();
+    hostDetachedTask.cancel();
+    attachFrameCallback.cancel();
+    animationFrameCallback.cancel();
+    jankMonitor.stop();
   }
 
-  private void removeAllMessagesForCrouton(Crouton crouton) {
-    removeMessages(Messages.ADD_CROUTON_TO_VIEW, crouton);
-    removeMessages(Messages.DISPLAY_CROUTON, crouton);
-    removeMessages(Messages.REMOVE_CROUTON, crouton);
+  private void cancelAllTasksForCrouton(Crouton crouton) {
+    attachTask.cancel(crouton);
+    enterAnimationTask.cancel(crouton);
+    sequencer.cancel(crouton);
+    layoutHook.detach(crouton);
+    detachHook.detach(crouton);
+    exitHook.detach(crouton);
+    hostDetachedTask.cancel(crouton);
+    if (attachFrameCallback.cancel(crouton)) {
+      jankMonitor.stop();
+    }
+    animationFrameCallback.cancel(crouton);
+  }
 
+  /**
+   * Enables or disables deferring the attachment of {@link Crouton}s while frames run over
+   * budget or the user is scrolling.
+   *
+   * @param enabled
+   *     <code>true</code> to defer attaching while the window is busy.
+   */
+  void setJankAwareDeferralEnabled(boolean enabled) {
+    jankAwareDeferralEnabled = enabled;
+    if (!enabled) {
+      jankMonitor.stop();
+    }
+  }
+
+  /**
+   * Enables or disables holding back {@link Crouton}s of an {@link Activity} until it has drawn
+   * its first frame. Disabling the gate releases nothing that is already held.
+   *
+   * @param enabled
+   *     <code>true</code> to hold {@link Crouton}s until the first frame has been drawn.
+   */
+  void setStartupGateEnabled(boolean enabled) {
+    startupGateEnabled = enabled;
+  }
+
+  /**
+   * Enables or disables showing {@link Crouton}s within a {@link CroutonHost} that stays attached
+   * to the activity's content view or the supplied {@link ViewGroup}.
+   *
+   * @param enabled
+   *     <code>true</code> to show {@link Crouton}s within a {@link CroutonHost}.
+   */
+  void setCroutonHostEnabled(boolean enabled) {
+    croutonHostEnabled = enabled;
+  }
+
+  /**
+   * Enables or disables keeping the view of a displayed {@link Crouton} attached and rebinding
+   * its content for the next {@link Crouton}, if both use the same host and compatible styles.
+   *
+   * @param enabled
+   *     <code>true</code> to rebind the content of compatible {@link Crouton}s.
+   */
+  void setRebindingEnabled(boolean enabled) {
+    rebindingEnabled = enabled;
+  }
+
+  /**
+   * Enables or disables positioning {@link Crouton}s of an activity by the top window inset of its
+   * content view instead of looking up the action bar. Only has an effect as of API 20 and while
+   * the {@link CroutonHost} is enabled, else a warning is logged once.
+   *
+   * @param enabled
+   *     <code>true</code> to position {@link Crouton}s by the window insets.
+   */
+  void setInsetsPositioningEnabled(boolean enabled) {
+    insetsPositioningEnabled = enabled;
+  }
+
+  /**
+   * Enables or disables reporting queued {@link Crouton}s whose activity has been garbage collected
+   * or destroyed, see {@link LeakWatcher}.
+   *
+   * @param enabled
+   *     <code>true</code> to report {@link Crouton}s that outlive their activity.
+   */
+  void setLeakDetectionEnabled(boolean enabled) {
+    leakWatcher.setEnabled(enabled);
+  }
+
+  /**
+   * Enables or disables laying out the text of queued {@link Crouton}s in the background. Only
+   * works on API 28 and above, see {@link TextPrecomputer}.
+   */
+  void setTextPrecomputingEnabled(boolean enabled) {
+    textPrecomputer.setEnabled(enabled);
+  }
+
+  /**
+   * Replaces the {@link CroutonScheduler} all delays and frames are timed with. Pending delays are
+   * moved over with the time they have left, pending frame callbacks wait for its next frame.
+   */
+  void setScheduler(CroutonScheduler scheduler) {
+    final CroutonScheduler previous = this.scheduler;
+    if (previous == scheduler) {
+      return;
+    }
+    this.scheduler = scheduler;
+    attachTask.moveFrom(previous);
+    enterAnimationTask.moveFrom(previous);
+    layoutTimeoutTask.moveFrom(previous);
+    hostDetachedTask.moveFrom(previous);
+    attachFrameCallback.moveFrom(previous);
+    animationFrameCallback.moveFrom(previous);
+    sequencer.setScheduler(scheduler, scheduler);
+    accessibilityAnnouncer.setScheduler(scheduler);
+  }
+
+  /** @return The {@link CroutonScheduler} all delays and frames are timed with. */
+  CroutonScheduler getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * Starts appending scheduling events to the binary log in the provided directory, replacing the
+   * current recording if there is one.
+   */
+  void startRecording(File directory, int maxBytes) throws IOException {
+    final EventRecorder recorder = EventRecorder.open(directory, maxBytes);
+    stopRecording();
+    eventRecorder = recorder;
+  }
+
+  /** Stops appending scheduling events to the binary log and flushes it. */
+  void stopRecording() {
+    final EventRecorder recorder = eventRecorder;
+    if (null != recorder) {
+      eventRecorder = null;
+      recorder.close();
+    }
+  }
+
+  /**
+   * Sets the {@link MetricsSink} measurements are reported to, or <code>null</code> to stop
+   * reporting them.
+   */
+  void setMetricsSink(MetricsSink metricsSink) {
+    this.metricsSink = metricsSink;
+  }
+
+  /**
+   * @return The {@link MetricsSink} measurements are reported to, or <code>null</code>.
+   */
+  MetricsSink getMetricsSink() {
+    return metricsSink;
+  }
+
+  /**
+   * Reports a {@link Crouton} that is discarded, counting it as dropped if it has not been displayed.
+   */
+  void onDiscarded(Crouton crouton, ExtendedLifecycleCallback.RemovalReason reason) {
+    log(EventLog.DISCARDED, crouton);
+    CroutonTrace.endAsync(crouton);
+    dispatchRemoved(crouton, reason);
+    if ((null != metricsSink) && !crouton.isShowing()) {
+      metricsSink.recordDropped();
+    }
+  }
+
+  private void log(int event, Crouton crouton) {
+    final int queueDepth = croutonQueue.size();
+    final long timestamp = System.nanoTime();
+    eventLog.record(event, crouton, queueDepth, timestamp);
+    final EventRecorder recorder = eventRecorder;
+    if (null != recorder) {
+      recorder.record(timestamp, event, crouton.getId(), System.identityHashCode(crouton.getHost()), queueDepth);
+    }
+  }
+
+  /**
+   * Prints the state of the queue and the recent events of the {@link EventLog}.
+   */
+  void dump(String prefix, PrintWriter writer) {
+    writer.print(prefix);
+    writer.println("Crouton state:");
+    final String innerPrefix = prefix + "  ";
+    writer.print(innerPrefix);
+    writer.print("queue (");
+    writer.print(croutonQueue.size());
+    writer.print("): ");
+    for (int i = 0; i < croutonQueue.size(); i++) {
+      final Crouton crouton = croutonQueue.get(i);
+      if (null == crouton) {
+        break;
+      }
+      writer.print(i > 0 ? ", #" : "#");
+      writer.print(crouton.getId());
+      if (crouton.isShowing()) {
+        writer.print(" (showing)");
+      }
+    }
+    writer.println();
+    final Crouton paused = sequencer.getPaused();
+    if (null != paused) {
+      writer.print(innerPrefix);
+      writer.print("paused: #");
+      writer.print(paused.getId());
+      writer.print(", ");
+      writer.print(sequencer.getPausedRemainingMillis());
+      writer.println("ms left");
+    }
+    writer.print(innerPrefix);
+    writer.print("frame overruns: ");
+    writer.println(frameOverrunCount);
+    eventLog.dump(innerPrefix, writer);
+    writer.flush();
+  }
+
+  /**
+   * @return The callback of the {@link Crouton} if it is an {@link ExtendedLifecycleCallback}, else <code>null</code>.
+   */
+  private static ExtendedLifecycleCallback getExtendedCallback(Crouton crouton) {
+    final LifecycleCallback callback = crouton.getLifecycleCallback();
+    return (callback instanceof ExtendedLifecycleCallback) ? (ExtendedLifecycleCallback) callback : null;
+  }
+
+  private static void dispatchRemoved(Crouton crouton, ExtendedLifecycleCallback.RemovalReason reason) {
+    final ExtendedLifecycleCallback callback = getExtendedCallback(crouton);
+    if (null != callback) {
+      callback.onRemoved(System.nanoTime(), reason);
+    }
+  }
+
+  private void recordDisplayLatency(Crouton crouton) {
+    if ((null != metricsSink) && (0 != crouton.getEnqueuedNanos())) {
+      metricsSink.recordDisplayLatency(System.nanoTime() - crouton.getEnqueuedNanos());
+    }
+  }
+
+  /**
+   * @return The number of frames that have been missed by the time a {@link Crouton}
+   * frame callback ran.
+   */
+  long getFrameOverrunCount() {
+    return frameOverrunCount;
+  }
+
+  private void updateFrameInterval(Activity activity) {
+    final Display display = activity.getWindowManager().getDefaultDisplay();
+    final float refreshRate = null != display ? display.getRefreshRate() : 0;
+    frameIntervalNanos = refreshRate > 0 ? (long) (1000000000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+  }
+
+  private void recordFrameOverrun(long frameTimeNanos) {
+    // frame times are on the time base of the scheduler, which may be virtual
+    final long jitterNanos = TimeUnit.MILLISECONDS.toNanos(scheduler.uptimeMillis()) - frameTimeNanos;
+    final long overrunFrames = Math.max(0, jitterNanos / frameIntervalNanos);
+    frameOverrunCount += overrunFrames;
+    if (null != metricsSink) {
+      metricsSink.recordFrameDrops((int) overrunFrames);
+    }
+  }
+
+  /**
+   * Attaches, removes and reports {@link Crouton}s on behalf of the {@link DisplaySequencer}, which
+   * decides when that happens.
+   */
+  private final class CroutonDisplay implements DisplaySequencer.Display<Crouton> {
+    @Override
+    public boolean isStale(Crouton crouton) {
+      // The activity or view group has been garbage collected or destroyed while it was queued.
+      return crouton.isHostDestroyed();
+    }
+
+    @Override
+    public boolean isPaused(Crouton crouton) {
+      // The Crouton is displayed once its activity has been started again.
+      return isStopped(crouton.getActivity());
+    }
+
+    @Override
+    public boolean isShowing(Crouton crouton) {
+      // A Crouton waiting for its frame to be attached is shown already, or every Crouton added
+      // meanwhile would display it again.
+      return crouton.isShowing() || isAttaching(crouton);
+    }
+
+    @Override
+    public void show(Crouton crouton) {
+      // If the activity is null we poll the Crouton off the queue.
+      if (null == crouton.getActivity()) {
+        croutonQueue.poll();
+      }
+      attachTask.schedule(crouton, 0);
+      log(EventLog.DISPLAY, crouton);
+      if (null != crouton.getLifecycleCallback()) {
+        crouton.getLifecycleCallback().onDisplayed();
+      }
+    }
+
+    @Override
+    public void discard(Crouton crouton) {
+      onDiscarded(crouton, ExtendedLifecycleCallback.RemovalReason.HOST_DESTROYED);
+      // remove the crouton from the content view of a destroyed host
+      removeCroutonFromViewParent(crouton);
+      cancelAllTasksForCrouton(crouton);
+      crouton.releaseHost();
+    }
+
+    @Override
+    public void expire(Crouton crouton) {
+      removeCrouton(crouton, ExtendedLifecycleCallback.RemovalReason.EXPIRED);
+      if (null != crouton.getLifecycleCallback()) {
+        crouton.getLifecycleCallback().onRemoved();
+      }
+    }
+
+    @Override
+    public void onExitFinished(Crouton crouton) {
+      // Pooled now, the view is handed out once its out animation is over.
+      crouton.recycleView();
+    }
+
+    @Override
+    public void onIdle() {
+      // The pooled view holds its activity, so it is only kept while croutons keep coming.
+      viewPool.clear();
+    }
+  }
+
+  /**
+   * Waits for the first layout of an attached {@link Crouton}'s own view before its animation is
+   * started. Only one {@link Crouton} is attached at a time, so a single instance is reused.
+   */
+  private final class LayoutHook implements View.OnLayoutChangeListener {
+    private Crouton crouton;
+    private View croutonView;
+    private long attachedNanos;
+
+    void attach(Crouton crouton, View croutonView) {
+      detach();
+      this.crouton = crouton;
+      this.croutonView = croutonView;
+      attachedNanos = System.nanoTime();
+      croutonView.addOnLayoutChangeListener(this);
+      layoutTimeoutTask.schedule(crouton, LAYOUT_TIMEOUT_MILLIS);
+    }
+
+    boolean isAttached(Crouton crouton) {
+      return crouton == this.crouton;
+    }
+
+    void detach(Crouton crouton) {
+      if (crouton == this.crouton) {
+        detach();
+      }
+    }
+
+    void detach() {
+      if (null != croutonView) {
+        croutonView.removeOnLayoutChangeListener(this);
+        layoutTimeoutTask.cancel(crouton);
+        croutonView = null;
+        crouton = null;
+      }
+    }
+
+    @Override
+    public void onLayoutChange(View view, int left, int top, int right, int bottom, int oldLeft, int oldTop,
+                               int oldRight, int oldBottom) {
+      final Crouton current = crouton;
+      detach();
+      log(EventLog.LAID_OUT, current);
+      if (null != metricsSink) {
+        metricsSink.recordLayoutTime(System.nanoTime() - attachedNanos);
+      }
+      // Start the animation with the next frame so its first frame is
+      // drawn right away instead of being skipped.
+      animationFrameCallback.post(current);
+    }
+  }
+
+  /**
+   * Notices when the view of the displayed {@link Crouton} is detached from its window without
+   * the {@link Manager} removing it. Only one {@link Crouton} is displayed at a time, so a single
+   * instance is reused.
+   */
+  private final class DetachHook implements View.OnAttachStateChangeListener {
+    private Crouton crouton;
+    private View croutonView;
+
+    void attach(Crouton crouton, View croutonView) {
+      detach();
+      this.crouton = crouton;
+      this.croutonView = croutonView;
+      croutonView.addOnAttachStateChangeListener(this);
+    }
+
+    void detach(Crouton crouton) {
+      if (crouton == this.crouton) {
+        detach();
+      }
+    }
+
+    void detach() {
+      if (null != croutonView) {
+        croutonView.removeOnAttachStateChangeListener(this);
+        croutonView = null;
+        crouton = null;
+      }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View view) {
+      /* no-op */
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View view) {
+      // The hierarchy must not be changed while it is being detached, so check with the next message.
+      hostDetachedTask.schedule(crouton, 0);
+    }
+  }
+
+  /**
+   * Displays the next {@link Crouton} as soon as the out animation of the removed one has ended.
+   * The end is reported after its former parent has drawn it for the last time, so its view can
+   * be handed to the next {@link Crouton} right away. Only one {@link Crouton} exits at a time,
+   * so a single instance is reused.
+   */
+  private final class ExitHook implements Animation.AnimationListener {
+    private Crouton crouton;
+
+    void attach(Crouton crouton, Animation outAnimation) {
+      this.crouton = crouton;
+      outAnimation.setAnimationListener(this);
+    }
+
+    void detach(Crouton crouton) {
+      if (crouton == this.crouton) {
+        this.crouton = null;
+      }
+    }
+
+    @Override
+    public void onAnimationStart(Animation animation) {
+      /* no-op */
+    }
+
+    @Override
+    public void onAnimationEnd(Animation animation) {
+      final Crouton exited = crouton;
+      crouton = null;
+      if (null != exited) {
+        sequencer.onExitEnded(exited);
+      }
+    }
+
+    @Override
+    public void onAnimationRepeat(Animation animation) {
+      /* no-op */
+    }
+  }
+
+  /**
+   * Runs one delayed step of displaying a {@link Crouton} on the {@link CroutonScheduler}.
+   * Only one {@link Crouton} is in each step at a time, so scheduling replaces a pending run.
+   */
+  private abstract class CroutonTask implements Runnable {
+    private Crouton crouton;
+    private long dueUptimeMillis;
+
+    void schedule(Crouton crouton, long delayMillis) {
+      if (null != this.crouton) {
+        scheduler.cancel(this);
+      }
+      this.crouton = crouton;
+      dueUptimeMillis = scheduler.uptimeMillis() + delayMillis;
+      scheduler.execute(this, delayMillis);
+    }
+
+    boolean isPending(Crouton crouton) {
+      return (null != crouton) && (crouton == this.crouton);
+    }
+
+    void cancel(Crouton crouton) {
+      if (isPending(crouton)) {
+        cancel();
+      }
+    }
+
+    void cancel() {
+      if (null != crouton) {
+        scheduler.cancel(this);
+        crouton = null;
+      }
+    }
+
+    /** Moves a pending run from the previous to the current scheduler with its remaining delay. */
+    void moveFrom(CroutonScheduler previous) {
+      if (null != crouton) {
+        previous.cancel(this);
+        final Crouton pending = crouton;
+        crouton = null;
+        schedule(pending, Math.max(0, dueUptimeMillis - previous.uptimeMillis()));
+      }
+    }
+
+    @Override
+    public final void run() {
+      final Crouton current = crouton;
+      crouton = null;
+      if (null != current) {
+        onRun(current);
+      }
+    }
+
+    abstract void onRun(Crouton crouton);
+  }
+
+  /**
+   * Runs one step of displaying a {@link Crouton} at the start of the next frame of the
+   * {@link CroutonScheduler}. Only one {@link Crouton} is in flight at a time, so a single instance
+   * per step is reused.
+   */
+  private abstract class CroutonFrameCallback implements Choreographer.FrameCallback {
+    private Crouton crouton;
+
+    void post(Crouton crouton) {
+      if (null != this.crouton) {
+        scheduler.removeFrameCallback(this);
+      }
+      this.crouton = crouton;
+      scheduler.postFrameCallback(this);
+    }
+
+    void moveFrom(CroutonScheduler previous) {
+      if (null != crouton) {
+        previous.removeFrameCallback(this);
+        scheduler.postFrameCallback(this);
+      }
+    }
+
+    boolean isPending(Crouton crouton) {
+      return crouton == this.crouton;
+    }
+
+    boolean cancel(Crouton crouton) {
+      if (crouton == this.crouton) {
+        cancel();
+        return true;
+      }
+      return false;
+    }
+
+    void cancel() {
+      if (null != crouton) {
+        scheduler.removeFrameCallback(this);
+        crouton = null;
+      }
+    }
+
+    @Override
+    public final void doFrame(long frameTimeNanos) {
+      final Crouton current = crouton;
+      crouton = null;
+      recordFrameOverrun(frameTimeNanos);
+      if (null != current) {
+        onFrame(current, frameTimeNanos);
+      }
+    }
+
+    abstract void onFrame(Crouton crouton, long frameTimeNanos);
   }
 
   /**
    * Generates and dispatches an SDK-specific spoken announcement.
    * <p>
-   * For backwards compatibility, we're constructing an event from scratch
-   * using the appropriate event type. If your application only targets SDK
-   * 16+, you can just call View.announceForAccessibility(CharSequence).
+   * Announcements of {@link Crouton}s displayed in quick succession are merged into a single
+   * event by the {@link AccessibilityAnnouncer}.
    * </p>
-   * <p/>
-   * note: AccessibilityManager is only available from API lvl 4.
-   * <p/>
-   * Adapted from https://http://eyes-free.googlecode.com/files/accessibility_codelab_demos_v2_src.zip
-   * via https://github.com/coreform/android-formidable-validation
    *
    * @param context
    *     Used to get {@link AccessibilityManager}
@@ -438,37 +1331,7 @@ final class Manager extends Handler {
    *     The text to announce.
    */
   public static void announceForAccessibilityCompat(Context context, CharSequence text) {
-    if (Build.VERSION.SDK_INT >= 4) {
-      AccessibilityManager accessibilityManager = null;
-      if (null != context) {
-        accessibilityManager = (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
-      }
-      if (null == accessibilityManager || !accessibilityManager.isEnabled()) {
-        return;
-      }
-
-      // Prior to SDK 16, announcements could only be made through FOCUSED
-      // events. Jelly Bean (SDK 16) added support for speaking text verbatim
-      // using the ANNOUNCEMENT event type.
-      final int eventType;
-      if (Build.VERSION.SDK_INT < 16) {
-        eventType = AccessibilityEvent.TYPE_VIEW_FOCUSED;
-      } else {
-        eventType = AccessibilityEvent.TYPE_ANNOUNCEMENT;
-      }
-
-      // Construct an accessibility event with the minimum recommended
-      // attributes. An event without a class name or package may be dropped.
-      final AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
-      event.getText().add(text);
-      event.setClassName(Manager.class.getName());
-      event.setPackageName(context.getPackageName());
-
-      // Sends the event directly through the accessibility manager. If your
-      // application only targets SDK 14+, you should just call
-      // getParent().requestSendAccessibilityEvent(this, event);
-      accessibilityManager.sendAccessibilityEvent(event);
-    }
+    getInstance().accessibilityAnnouncer.announce(context, text);
   }
 
   @Override
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.content.ComponentCallbacks2;
+import android.text.Spanned;
+
+/**
+ * Caches the measured heights of {@link Crouton} views, keyed by their {@link Style}, text,
+ * available width and text scale, so repeated messages don't need an extra measure pass.
+ * <p/>
+ * The cache is direct mapped. A hit requires the stored {@link Style} to be
+ * {@link Style#isMeasureEquivalent(Style) measure equivalent} and the stored text to be equal, so
+ * a hash collision only ever costs a measure pass. Lookups don't allocate. {@link Spanned} texts
+ * are always measured, as their spans may change the size.
+ */
+final class MeasureCache {
+  /** Returned by {@link #get(Style, CharSequence, int, float)} if no height has been cached. */
+  static final int NOT_CACHED = -1;
+
+  private static final int DEFAULT_CAPACITY = 64;
+  private static final int REDUCED_CAPACITY = 16;
+
+  private static MeasureCache INSTANCE;
+
+  private int capacity;
+  private Style[] styles;
+  private String[] texts;
+  private int[] widths;
+  private float[] scaledDensities;
+  private int[] heights;
+
+  private MeasureCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return The instance shared by all {@link Crouton}s.
+   */
+  static synchronized MeasureCache getInstance() {
+    if (null == INSTANCE) {
+      INSTANCE = new MeasureCache(DEFAULT_CAPACITY);
+    }
+
+    return INSTANCE;
+  }
+
+  /**
+   * Looks up the height of a measurement.
+   *
+   * @param style
+   *   The {@link Style} the view has been built with.
+   * @param text
+   *   The text of the view.
+   * @param availableWidth
+   *   The width available to the view in pixels.
+   * @param scaledDensity
+   *   The scaled density of the display, covering both density and font scale.
+   *
+   * @return The cached height or {@link #NOT_CACHED}.
+   */
+  int get(Style style, CharSequence text, int availableWidth, float scaledDensity) {
+    if (null == styles || !isCacheable(text)) {
+      return NOT_CACHED;
+    }
+    final int index = indexOf(style, text, availableWidth, scaledDensity);
+    final Style cachedStyle = styles[index];
+    if ((null != cachedStyle) && (widths[index] == availableWidth) && (scaledDensities[index] == scaledDensity)
+        && texts[index].contentEquals(text) && cachedStyle.isMeasureEquivalent(style)) {
+      return heights[index];
+    }
+    return NOT_CACHED;
+  }
+
+  /** Caches a measured height, replacing an older entry in the same slot. */
+  void put(Style style, CharSequence text, int availableWidth, float scaledDensity, int height) {
+    if (!isCacheable(text)) {
+      return;
+    }
+    if (null == styles) {
+      styles = new Style[capacity];
+      texts = new String[capacity];
+      widths = new int[capacity];
+      scaledDensities = new float[capacity];
+      heights = new int[capacity];
+    }
+    final int index = indexOf(style, text, availableWidth, scaledDensity);
+    styles[index] = style;
+    texts[index] = text.toString();
+    widths[index] = availableWidth;
+    scaledDensities[index] = scaledDensity;
+    heights[index] = height;
+  }
+
+  /** Drops all cached heights. */
+  void clear() {
+    if (null == styles) {
+      return;
+    }
+    for (int i = 0; i < styles.length; i++) {
+      styles[i] = null;
+      texts[i] = null;
+    }
+  }
+
+  /**
+   * Switches between the default and the smaller capacity of the {@link DeviceProfile#REDUCED}
+   * profile. Cached heights are dropped if the capacity changes.
+   */
+  void setReduced(boolean reduced) {
+    final int capacity = reduced ? REDUCED_CAPACITY : DEFAULT_CAPACITY;
+    if (capacity != this.capacity) {
+      this.capacity = capacity;
+      release();
+    }
+  }
+
+  /**
+   * Releases the backing arrays once the app is in the background or memory is critically low.
+   * They are allocated again with the next measurement.
+   *
+   * @param level
+   *   The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+   *
+   * @return The number of bytes freed, not counting the cached texts.
+   */
+  long trim(int level) {
+    if (null == styles || (level < ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+        && level != ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)) {
+      return 0;
+    }
+    final long bytes = styles.length * 20L;
+    release();
+    return bytes;
+  }
+
+  private void release() {
+    styles = null;
+    texts = null;
+    widths = null;
+    scaledDensities = null;
+    heights = null;
+  }
+
+  private int indexOf(Style style, CharSequence text, int availableWidth, float scaledDensity) {
+    int hash = style.measureHashCode();
+    hash = 31 * hash + textHash(text);
+    hash = 31 * hash + availableWidth;
+    hash = 31 * hash + Float.floatToIntBits(scaledDensity);
+    hash ^= (hash >>> 16);
+    return hash & (styles.length - 1);
+  }
+
+  private static boolean isCacheable(CharSequence text) {
+    return (null != text) && !(text instanceof Spanned);
+  }
+
+  /** Hashes the characters of a text without copying it. */
+  private static int textHash(CharSequence text) {
+    if (text instanceof String) {
+      return text.hashCode();
+    }
+    int hash = 0;
+    final int length = text.length();
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    return hash;
+  }
+}
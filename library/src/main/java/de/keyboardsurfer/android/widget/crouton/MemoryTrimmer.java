@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.content.ComponentCallbacks2;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Trims the caches held by {@link Crouton}s when the system asks the app to release memory.
+ * Every cache decides on its own what to drop for a given trim level, the cheaper a cache is to
+ * rebuild the earlier it is released.
+ */
+final class MemoryTrimmer implements ComponentCallbacks2 {
+  static final String TYPEFACES = "typefaces";
+  static final String BACKGROUNDS = "backgrounds";
+  static final String MEASUREMENTS = "measurements";
+  static final String ANIMATIONS = "animations";
+
+  /**
+   * Trims all caches for the provided level.
+   *
+   * @param level
+   *   One of the <code>TRIM_MEMORY_</code> levels of {@link ComponentCallbacks2}.
+   *
+   * @return The number of bytes freed, per cache.
+   */
+  Map<String, Long> trim(int level) {
+    final Map<String, Long> freed = new LinkedHashMap<String, Long>(4);
+    freed.put(TYPEFACES, TypefaceSpan.trimCache(level));
+    freed.put(BACKGROUNDS, BackgroundCache.getInstance().trim(level));
+    freed.put(MEASUREMENTS, MeasureCache.getInstance().trim(level));
+    freed.put(ANIMATIONS, DefaultAnimationsBuilder.trim(level));
+    return freed;
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    trim(level);
+  }
+
+  @Override
+  public void onLowMemory() {
+    trim(TRIM_MEMORY_COMPLETE);
+  }
+
+  @Override
+  public void onConfigurationChanged(android.content.res.Configuration newConfig) {
+    /* no-op */
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * Receives measurements of how {@link Crouton}s are displayed, see
+ * {@link Crouton#setMetricsSink(MetricsSink)}.
+ * <p/>
+ * All methods are called on the main thread while {@link Crouton}s are being displayed, so
+ * implementations should neither block nor allocate. {@link CroutonMetrics} records them into
+ * fixed-bucket histograms.
+ */
+public interface MetricsSink {
+  /**
+   * @param depth The number of queued {@link Crouton}s after one has been added.
+   */
+  void recordQueueDepth(int depth);
+
+  /**
+   * @param nanos The time from queuing a {@link Crouton} until its in animation was started.
+   */
+  void recordDisplayLatency(long nanos);
+
+  /**
+   * @param nanos The time spent building the view of a {@link Crouton}.
+   */
+  void recordViewBuildTime(long nanos);
+
+  /**
+   * @param nanos The time from attaching the view of a {@link Crouton} until it has been measured
+   *              and laid out.
+   */
+  void recordLayoutTime(long nanos);
+
+  /**
+   * @param frames The number of frames missed by the time a step of displaying a {@link Crouton}
+   *               ran at the start of a frame.
+   */
+  void recordFrameDrops(int frames);
+
+  /**
+   * Called for every queued {@link Crouton} that is discarded before it has been displayed.
+   */
+  void recordDropped();
+
+  /**
+   * Called for every {@link Crouton} that has been attached but not laid out in time, and was
+   * removed for that reason.
+   */
+  void recordLayoutTimeout();
+
+  /**
+   * Called whenever work has been merged, e.g. several updates applied within one frame or a
+   * {@link Crouton} taking over the view of the previous one.
+   */
+  void recordCoalesced();
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds back {@link Crouton}s of an {@link Activity} that has not drawn its first frame yet,
+ * so they don't compete with the activity's first layout and draw. Held {@link Crouton}s are
+ * handed back to the {@link Manager} in a single batch once the first frame has been drawn.
+ * <p/>
+ * The decor view is only peeked at, never created, so {@link Crouton}s shown before
+ * <code>setContentView()</code> don't break later window feature requests. Without a decor view
+ * the gate waits for the next message, by which the activity has been resumed.
+ * <p/>
+ * Gates only hold their {@link Activity} and its decor view weakly. A gate whose {@link Activity}
+ * was collected before its first draw is dropped the next time the gates are looked through.
+ */
+@TargetApi(16)
+final class StartupGate {
+  private final Manager manager;
+  private final List<Gate> gates = new ArrayList<Gate>(1);
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  StartupGate(Manager manager) {
+    this.manager = manager;
+  }
+
+  /**
+   * Holds the provided {@link Crouton} if its {@link Activity} has not drawn yet.
+   *
+   * @param crouton
+   *   The {@link Crouton} that is about to be queued.
+   *
+   * @return <code>true</code> if the {@link Crouton} is held by the gate.
+   */
+  boolean hold(Crouton crouton) {
+    final Activity activity = crouton.getActivity();
+    if (null == activity || null == activity.getWindow()) {
+      return false;
+    }
+
+    Gate gate = findGate(activity);
+    if (null == gate) {
+      final View decorView = activity.getWindow().peekDecorView();
+      if (isDrawn(decorView)) {
+        return false;
+      }
+      gate = new Gate(activity);
+      gates.add(gate);
+      if (null != decorView) {
+        gate.attach(decorView);
+      } else {
+        handler.post(gate);
+      }
+    }
+    gate.croutons.add(crouton);
+    return true;
+  }
+
+  /**
+   * Removes a held {@link Crouton} and reports it as cancelled.
+   *
+   * @return <code>true</code> if the {@link Crouton} was held by the gate.
+   */
+  boolean remove(Crouton crouton) {
+    dropDeadGates();
+    for (int i = 0; i < gates.size(); i++) {
+      final Gate gate = gates.get(i);
+      if (gate.croutons.remove(crouton)) {
+        if (gate.croutons.isEmpty()) {
+          close(gate, ExtendedLifecycleCallback.RemovalReason.CANCELLED);
+        }
+        manager.onDiscarded(crouton, ExtendedLifecycleCallback.RemovalReason.CANCELLED);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Drops all {@link Crouton}s held for the provided {@link Activity}, reporting their host as destroyed. */
+  void clear(Activity activity) {
+    final Gate gate = findGate(activity);
+    if (null != gate) {
+      close(gate, ExtendedLifecycleCallback.RemovalReason.HOST_DESTROYED);
+    }
+  }
+
+  /** Drops all held {@link Crouton}s, reporting them as cancelled. */
+  void clear() {
+    while (!gates.isEmpty()) {
+      close(gates.get(gates.size() - 1), ExtendedLifecycleCallback.RemovalReason.CANCELLED);
+    }
+  }
+
+  /** The drawing time is only set once the window has been attached and drawn. */
+  private static boolean isDrawn(View decorView) {
+    return (null != decorView) && (0 != decorView.getDrawingTime());
+  }
+
+  private Gate findGate(Activity activity) {
+    dropDeadGates();
+    for (int i = 0; i < gates.size(); i++) {
+      final Gate gate = gates.get(i);
+      if (gate.activity.get() == activity) {
+        return gate;
+      }
+    }
+    return null;
+  }
+
+  /** Closes the gates of collected activities, reporting their {@link Crouton}s' host as destroyed. */
+  private void dropDeadGates() {
+    for (int i = gates.size() - 1; i >= 0; i--) {
+      if (i < gates.size() && null == gates.get(i).activity.get()) {
+        close(gates.get(i), ExtendedLifecycleCallback.RemovalReason.HOST_DESTROYED);
+      }
+    }
+  }
+
+  private void close(Gate gate, ExtendedLifecycleCallback.RemovalReason reason) {
+    gates.remove(gate);
+    gate.detach();
+    final List<Crouton> dropped = new ArrayList<Crouton>(gate.croutons);
+    gate.croutons.clear();
+    for (int i = 0; i < dropped.size(); i++) {
+      manager.onDiscarded(dropped.get(i), reason);
+    }
+  }
+
+  private void release(Gate gate) {
+    if (!gates.remove(gate)) {
+      return;
+    }
+    gate.detach();
+    final List<Crouton> released = new ArrayList<Crouton>(gate.croutons);
+    gate.croutons.clear();
+    manager.addAll(released);
+  }
+
+  /** Waits for the first draw of a single {@link Activity}'s window. */
+  private final class Gate implements ViewTreeObserver.OnDrawListener, Runnable {
+    final WeakReference<Activity> activity;
+    final List<Crouton> croutons = new ArrayList<Crouton>();
+    private WeakReference<View> decorView;
+    private ViewTreeObserver observer;
+    private boolean drawn;
+
+    Gate(Activity activity) {
+      this.activity = new WeakReference<Activity>(activity);
+    }
+
+    void attach(View decorView) {
+      this.decorView = new WeakReference<View>(decorView);
+      this.observer = decorView.getViewTreeObserver();
+      observer.addOnDrawListener(this);
+    }
+
+    @Override
+    public void onDraw() {
+      // Listeners can't be removed while the draw is being dispatched, so release with the
+      // next message instead.
+      if (!drawn) {
+        drawn = true;
+        handler.post(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      final Activity host = activity.get();
+      if (null == host) {
+        dropDeadGates();
+        return;
+      }
+      if (null == decorView) {
+        // Posted while the activity had no decor view yet. Wait for its first draw if it has one by
+        // now, else there is nothing to wait for.
+        final View current = (null != host.getWindow()) ? host.getWindow().peekDecorView() : null;
+        if ((null != current) && !isDrawn(current)) {
+          attach(current);
+          return;
+        }
+      }
+      release(this);
+    }
+
+    void detach() {
+      handler.removeCallbacks(this);
+      if (null != observer) {
+        final View view = decorView.get();
+        if (observer.isAlive()) {
+          observer.removeOnDrawListener(this);
+        } else if (null != view) {
+          view.getViewTreeObserver().removeOnDrawListener(this);
+        }
+        observer = null;
+      }
+    }
+  }
+}
@@ -569,6 +569,78 @@ public class Style {
         }
     }
 
+    /**
+     * Checks whether a view built for the provided {@link Style} can be reused for this one by
+     * only swapping its text, image and colors.
+     *
+     * @param other The {@link Style} the view has been built for.
+     * @return <code>true</code> if both styles result in the same view structure and layout.
+     */
+    boolean isLayoutCompatible(Style other) {
+        if (this == other) {
+            return true;
+        }
+        final boolean hasImage = (null != imageDrawable) || (0 != imageResId);
+        final boolean otherHasImage = (null != other.imageDrawable) || (0 != other.imageResId);
+        return hasImage == otherHasImage
+                && imageScaleType == other.imageScaleType
+                && backgroundDrawableResourceId == other.backgroundDrawableResourceId
+                && isTileEnabled == other.isTileEnabled
+                && heightInPixels == other.heightInPixels
+                && heightDimensionResId == other.heightDimensionResId
+                && widthInPixels == other.widthInPixels
+                && widthDimensionResId == other.widthDimensionResId
+                && gravity == other.gravity
+                && textSize == other.textSize
+                && textShadowColorResId == other.textShadowColorResId
+                && textShadowRadius == other.textShadowRadius
+                && textShadowDx == other.textShadowDx
+                && textShadowDy == other.textShadowDy
+                && textAppearanceResId == other.textAppearanceResId
+                && paddingInPixels == other.paddingInPixels
+                && paddingDimensionResId == other.paddingDimensionResId
+                && fontNameResId == other.fontNameResId
+                && (null == fontName ? null == other.fontName : fontName.equals(other.fontName));
+    }
+
+    /**
+     * Checks whether a view built for the provided {@link Style} measures the same as one built for
+     * this {@link Style}, given the same text and available width. Only colors may differ.
+     *
+     * @param other The {@link Style} a view has been measured with.
+     * @return <code>true</code> if both styles result in the same measured size.
+     */
+    boolean isMeasureEquivalent(Style other) {
+        return isLayoutCompatible(other) && imageDrawable == other.imageDrawable && imageResId == other.imageResId;
+    }
+
+    /**
+     * @return A hash code that is equal for styles that are {@link #isMeasureEquivalent(Style)}.
+     */
+    int measureHashCode() {
+        int hash = (null != imageDrawable) ? System.identityHashCode(imageDrawable) : 0;
+        hash = 31 * hash + imageResId;
+        hash = 31 * hash + ((null != imageScaleType) ? imageScaleType.ordinal() : -1);
+        hash = 31 * hash + backgroundDrawableResourceId;
+        hash = 31 * hash + (isTileEnabled ? 1 : 0);
+        hash = 31 * hash + heightInPixels;
+        hash = 31 * hash + heightDimensionResId;
+        hash = 31 * hash + widthInPixels;
+        hash = 31 * hash + widthDimensionResId;
+        hash = 31 * hash + gravity;
+        hash = 31 * hash + textSize;
+        hash = 31 * hash + textShadowColorResId;
+        hash = 31 * hash + Float.floatToIntBits(textShadowRadius);
+        hash = 31 * hash + Float.floatToIntBits(textShadowDx);
+        hash = 31 * hash + Float.floatToIntBits(textShadowDy);
+        hash = 31 * hash + textAppearanceResId;
+        hash = 31 * hash + paddingInPixels;
+        hash = 31 * hash + paddingDimensionResId;
+        hash = 31 * hash + fontNameResId;
+        hash = 31 * hash + ((null != fontName) ? fontName.hashCode() : 0);
+        return hash;
+    }
+
     @Override
     public String toString() {
         return "Style{" +
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.util.Log;
+import android.widget.TextView;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Lays out the text of queued {@link Crouton}s on a background thread, so building their view on
+ * the main thread doesn't have to measure the text.
+ * <p/>
+ * The text parameters are taken from the first view measured for a {@link Style}; the text of
+ * following {@link Crouton}s with the same {@link Style} is then prepared while they are queued,
+ * including loading a custom font. A <code>PrecomputedText</code> is created, which the text view
+ * draws without measuring again, so nothing is prepared below API 28.
+ * <p/>
+ * Queued {@link Crouton}s are handed to a single task that prepares them one after another, which
+ * is only submitted to the background thread when it is not running already. Their text,
+ * {@link Style}, font and parameters are taken on the main thread when they are queued, the
+ * background thread doesn't read the {@link Crouton}.
+ */
+final class TextPrecomputer {
+  private static final String TAG = "TextPrecomputer";
+  private static final int PRECOMPUTED_TEXT_API = 28;
+
+  private static TextPrecomputer INSTANCE;
+  private static Method getTextMetricsParams;
+  private static Method createPrecomputedText;
+
+  private final Map<Style, Object> templates = new WeakHashMap<Style, Object>();
+  /** The {@link Crouton}s waiting for their text to be prepared, guarded by itself. */
+  private final ArrayDeque<Job> pending = new ArrayDeque<Job>();
+  private final Runnable drain = new Runnable() {
+    @Override
+    public void run() {
+      while (true) {
+        final Job job;
+        synchronized (pending) {
+          job = pending.poll();
+          if (null == job) {
+            draining = false;
+            return;
+          }
+        }
+        prepareNow(job);
+      }
+    }
+  };
+  private ExecutorService executor;
+  private boolean draining;
+  private volatile boolean enabled;
+
+  private TextPrecomputer() {
+  }
+
+  /**
+   * @return The instance shared by all {@link Crouton}s.
+   */
+  static synchronized TextPrecomputer getInstance() {
+    if (null == INSTANCE) {
+      INSTANCE = new TextPrecomputer();
+    }
+
+    return INSTANCE;
+  }
+
+  void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      synchronized (templates) {
+        templates.clear();
+      }
+      synchronized (pending) {
+        pending.clear();
+      }
+    }
+  }
+
+  /**
+   * Remembers the text parameters of a measured text view for the next {@link Crouton}s with the
+   * same {@link Style}.
+   */
+  void remember(Style style, TextView textView) {
+    if (!enabled || (Build.VERSION.SDK_INT < PRECOMPUTED_TEXT_API)) {
+      return;
+    }
+    final Object params = getTextMetricsParams(textView);
+    if (null != params) {
+      synchronized (templates) {
+        templates.put(style, params);
+      }
+    }
+  }
+
+  /**
+   * Starts preparing the text of a queued {@link Crouton} in the background, if a view with its
+   * {@link Style} has been measured before.
+   */
+  void prepare(Crouton crouton) {
+    final Context context = crouton.getActivity();
+    if (!enabled || (null == crouton.getText()) || (null == context) || (null != crouton.getPreparedText())) {
+      return;
+    }
+    final Style style = crouton.getStyle();
+    final Object params;
+    synchronized (templates) {
+      params = templates.get(style);
+    }
+    if (null == params) {
+      return;
+    }
+    String fontName = style.fontName;
+    if ((null == fontName) && (0 != style.fontNameResId)) {
+      fontName = context.getResources().getString(style.fontNameResId);
+    }
+    final Job job = new Job(crouton, crouton.getText(), style, fontName, params, context.getApplicationContext());
+    final boolean submit;
+    synchronized (pending) {
+      pending.add(job);
+      submit = !draining;
+      draining = true;
+    }
+    if (submit) {
+      getExecutor().execute(drain);
+    }
+  }
+
+  /**
+   * Prepares the text of a {@link Crouton} on the background thread, from what was taken when it
+   * was queued.
+   */
+  private void prepareNow(Job job) {
+    if (!enabled) {
+      // disabled since it has been queued
+      return;
+    }
+    final boolean traced = CroutonTrace.beginSection(CroutonTrace.PRECOMPUTE_TEXT);
+    try {
+      // apply() drops the result if the text or style of the Crouton changed meanwhile
+      job.crouton.setPreparedText(layOut(job.params, job.text, job.style, job.fontName, job.context));
+    } catch (RuntimeException e) {
+      // The text is laid out on the main thread as usual.
+      Log.w(TAG, "Could not prepare the text of a Crouton", e);
+    } finally {
+      CroutonTrace.endSection(traced);
+    }
+  }
+
+  /**
+   * Sets the prepared text of a {@link Crouton} on its text view, if it is ready and still matches
+   * the text, {@link Style} and text parameters of the view.
+   *
+   * @return <code>true</code> if the prepared text has been set.
+   */
+  static boolean apply(Crouton crouton, TextView textView) {
+    final PreparedText prepared = crouton.getPreparedText();
+    if ((null == prepared) || (prepared.source != crouton.getText()) || (prepared.style != crouton.getStyle())) {
+      return false;
+    }
+    // A text view refuses precomputed text with other parameters than its own.
+    final Object params = getTextMetricsParams(textView);
+    if ((null == params) || !params.equals(prepared.params)) {
+      return false;
+    }
+    textView.setText(prepared.text);
+    return true;
+  }
+
+  private static PreparedText layOut(Object params, CharSequence text, Style style, String typefaceName,
+                                     Context context) {
+    CharSequence styledText = text;
+    if (null != typefaceName) {
+      final SpannableString spannable = new SpannableString(text);
+      spannable.setSpan(new TypefaceSpan(context, typefaceName), 0, spannable.length(),
+          Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+      styledText = spannable;
+    }
+    final CharSequence precomputed = createPrecomputedText(styledText, params);
+    return (null != precomputed) ? new PreparedText(text, style, precomputed, params) : null;
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (null == executor) {
+      executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+          final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              runnable.run();
+            }
+          }, "Crouton text");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
+  private static Object getTextMetricsParams(TextView textView) {
+    try {
+      if (null == getTextMetricsParams) {
+        getTextMetricsParams = TextView.class.getMethod("getTextMetricsParams");
+      }
+      return getTextMetricsParams.invoke(textView);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static CharSequence createPrecomputedText(CharSequence text, Object params) {
+    try {
+      if (null == createPrecomputedText) {
+        createPrecomputedText = Class.forName("android.text.PrecomputedText")
+            .getMethod("create", CharSequence.class, params.getClass());
+      }
+      return (CharSequence) createPrecomputedText.invoke(null, text, params);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /** What the background thread needs to prepare the text of a {@link Crouton}, taken on the main thread. */
+  private static final class Job {
+    final Crouton crouton;
+    final CharSequence text;
+    final Style style;
+    final String fontName;
+    final Object params;
+    final Context context;
+
+    Job(Crouton crouton, CharSequence text, Style style, String fontName, Object params, Context context) {
+      this.crouton = crouton;
+      this.text = text;
+      this.style = style;
+      this.fontName = fontName;
+      this.params = params;
+      this.context = context;
+    }
+  }
+
+  /** A text laid out in the background, along with the text and {@link Style} it was made for. */
+  static final class PreparedText {
+    final CharSequence source;
+    final Style style;
+    final CharSequence text;
+    final Object params;
+
+    PreparedText(CharSequence source, Style style, CharSequence text, Object params) {
+      this.source = source;
+      this.style = style;
+      this.text = text;
+      this.params = params;
+    }
+  }
+}
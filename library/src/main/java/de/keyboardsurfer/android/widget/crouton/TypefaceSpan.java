@@ -17,18 +17,25 @@
 
 package de.keyboardsurfer.android.widget.crouton;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.graphics.Typeface;
 import android.support.v4.util.LruCache;
 import android.text.TextPaint;
 import android.text.style.MetricAffectingSpan;
+import java.io.IOException;
+import java.util.Map;
 
 /**
  * Style a spannable with a custom {@link Typeface}.
  */
 public class TypefaceSpan extends MetricAffectingSpan {
+  /** The size assumed for a font file that is compressed in the APK, a typical Latin font. */
+  private static final int DEFAULT_FONT_BYTES = 100 * 1024;
+
   /** An <code>LruCache</code> for previously loaded typefaces. */
-  private static LruCache<String, Typeface> sTypefaceCache = new LruCache<String, Typeface>(5);
+  private static LruCache<String, CachedTypeface> sTypefaceCache = new LruCache<String, CachedTypeface>(5);
 
   private Typeface mTypeface;
 
@@ -36,14 +43,66 @@ public class TypefaceSpan extends MetricAffectingSpan {
    * Load the {@link Typeface} and apply to a spannable.
    */
   public TypefaceSpan(Context context, String typefaceName) {
-    mTypeface = sTypefaceCache.get(typefaceName);
+    final CachedTypeface cached = sTypefaceCache.get(typefaceName);
+
+    if (cached == null) {
+      final boolean traced = CroutonTrace.beginSection(CroutonTrace.LOAD_TYPEFACE);
+      try {
+        mTypeface = Typeface.createFromAsset(context.getApplicationContext()
+            .getAssets(), String.format("%s", typefaceName));
+
+        // Cache the loaded Typeface
+        sTypefaceCache.put(typefaceName, new CachedTypeface(mTypeface, assetSize(context, typefaceName)));
+      } finally {
+        CroutonTrace.endSection(traced);
+      }
+    } else {
+      mTypeface = cached.typeface;
+    }
+  }
 
-    if (mTypeface == null) {
-      mTypeface = Typeface.createFromAsset(context.getApplicationContext()
-          .getAssets(), String.format("%s", typefaceName));
+  /**
+   * Drops the cached typefaces once the app is in the background or memory is critically low.
+   * Spans that have already been created keep their {@link Typeface}.
+   *
+   * @param level
+   *   The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+   *
+   * @return The approximate number of bytes freed, based on the size of the font files.
+   */
+  static long trimCache(int level) {
+    if (level < ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+        && level != ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      return 0;
+    }
+    long bytes = 0;
+    for (Map.Entry<String, CachedTypeface> entry : sTypefaceCache.snapshot().entrySet()) {
+      bytes += entry.getValue().bytes;
+    }
+    sTypefaceCache.evictAll();
+    return bytes;
+  }
 
-      // Cache the loaded Typeface
-      sTypefaceCache.put(typefaceName, mTypeface);
+  /**
+   * Looks up the size of a font file without opening a stream on it. Only uncompressed assets have
+   * a file descriptor, compressed ones are assumed to have {@link #DEFAULT_FONT_BYTES}.
+   */
+  private static int assetSize(Context context, String typefaceName) {
+    AssetFileDescriptor descriptor = null;
+    try {
+      descriptor = context.getApplicationContext().getAssets().openFd(typefaceName);
+      final long length = descriptor.getLength();
+      return (length > 0) ? (int) Math.min(length, Integer.MAX_VALUE) : DEFAULT_FONT_BYTES;
+    } catch (IOException e) {
+      return DEFAULT_FONT_BYTES;
+    } finally {
+      if (null != descriptor) {
+        try {
+          descriptor.close();
+        } catch (IOException e) {
+          // nothing to do
+        }
+      }
     }
   }
 
@@ -56,4 +115,15 @@ public class TypefaceSpan extends MetricAffectingSpan {
   public void updateDrawState(TextPaint tp) {
     tp.setTypeface(mTypeface);
   }
+
+  /** A loaded {@link Typeface} along with the size of its font file. */
+  private static final class CachedTypeface {
+    final Typeface typeface;
+    final int bytes;
+
+    CachedTypeface(Typeface typeface, int bytes) {
+      this.typeface = typeface;
+      this.bytes = bytes;
+    }
+  }
 }
\ No newline at end of file
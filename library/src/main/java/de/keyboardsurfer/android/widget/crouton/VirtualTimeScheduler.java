@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.view.Choreographer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps its own time, which only moves on when {@link #advanceBy(long)} is called. Tasks that
+ * become due are run right away on the calling thread, in the order of their due time. Frames
+ * are virtual as well: frame callbacks run at the next multiple of {@link #FRAME_INTERVAL_MILLIS}.
+ * <p/>
+ * The display durations, the gaps between {@link Crouton}s, the layout timeout and the frames
+ * {@link Crouton}s are attached, animated and updated in are timed by this scheduler. The layout
+ * and drawing of the views are still done by the view system, so a full display cycle only moves
+ * on when the main looper runs as well, e.g. a paused looper in a Robolectric test advanced in
+ * step. The sequencing alone can be run through hours of traffic in milliseconds by driving a
+ * {@link de.keyboardsurfer.android.widget.crouton.core.DisplaySequencer} with this scheduler.
+ */
+public final class VirtualTimeScheduler implements CroutonScheduler {
+  /** The time between two virtual frames. */
+  public static final long FRAME_INTERVAL_MILLIS = 16;
+
+  private final List<Task> tasks = new ArrayList<Task>();
+  private final List<Choreographer.FrameCallback> frameCallbacks = new ArrayList<Choreographer.FrameCallback>();
+  /** The callbacks of the frame being run, callbacks posted meanwhile wait for the next frame. */
+  private final List<Choreographer.FrameCallback> runningFrameCallbacks = new ArrayList<Choreographer.FrameCallback>();
+  /** Tasks that have run or been cancelled, reused by {@link #execute(Runnable, long)}. */
+  private final List<Task> recycled = new ArrayList<Task>();
+  private long now;
+  /** The time of the frame the waiting frame callbacks run in. */
+  private long nextFrameMillis;
+  private boolean inFrame;
+
+  @Override
+  public long uptimeMillis() {
+    return now;
+  }
+
+  @Override
+  public void execute(Runnable task, long delayMillis) {
+    final Task scheduled = obtain(task, now + Math.max(0, delayMillis));
+    // Tasks due at the same time keep the order they were scheduled in.
+    int index = tasks.size();
+    while ((index > 0) && (tasks.get(index - 1).dueMillis > scheduled.dueMillis)) {
+      index--;
+    }
+    tasks.add(index, scheduled);
+  }
+
+  @Override
+  public void cancel(Runnable task) {
+    for (int i = tasks.size() - 1; i >= 0; i--) {
+      if (tasks.get(i).runnable == task) {
+        recycle(tasks.remove(i));
+      }
+    }
+  }
+
+  @Override
+  public void postFrameCallback(Choreographer.FrameCallback callback) {
+    if (frameCallbacks.isEmpty()) {
+      // callbacks posted by a frame callback wait for the one after it
+      nextFrameMillis = inFrame ? now + FRAME_INTERVAL_MILLIS
+          : (now / FRAME_INTERVAL_MILLIS + 1) * FRAME_INTERVAL_MILLIS;
+    }
+    frameCallbacks.add(callback);
+  }
+
+  @Override
+  public void removeFrameCallback(Choreographer.FrameCallback callback) {
+    for (int i = frameCallbacks.size() - 1; i >= 0; i--) {
+      if (frameCallbacks.get(i) == callback) {
+        frameCallbacks.remove(i);
+      }
+    }
+    // a callback removed by another one of the same frame doesn't run either
+    for (int i = 0; i < runningFrameCallbacks.size(); i++) {
+      if (runningFrameCallbacks.get(i) == callback) {
+        runningFrameCallbacks.set(i, null);
+      }
+    }
+  }
+
+  /**
+   * Moves the time forward, running all tasks and frames that become due on the way, including
+   * those they schedule themselves. Tasks due at the time of a frame run before it.
+   *
+   * @param millis
+   *   The time to advance by.
+   */
+  public void advanceBy(long millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Time can only be advanced");
+    }
+    final long target = now + millis;
+    while (true) {
+      final long taskMillis = tasks.isEmpty() ? Long.MAX_VALUE : tasks.get(0).dueMillis;
+      final long frameMillis = frameCallbacks.isEmpty() ? Long.MAX_VALUE : nextFrameMillis;
+      if ((taskMillis <= frameMillis) && (taskMillis <= target)) {
+        final Task task = tasks.remove(0);
+        final Runnable runnable = task.runnable;
+        now = taskMillis;
+        // recycled first, so the task can be reused when the runnable schedules itself again
+        recycle(task);
+        runnable.run();
+      } else if ((frameMillis < taskMillis) && (frameMillis <= target)) {
+        now = frameMillis;
+        runFrame(frameMillis * 1000000L);
+      } else {
+        break;
+      }
+    }
+    now = target;
+  }
+
+  /**
+   * @return The number of tasks waiting for their due time and of frame callbacks waiting for the
+   * next frame.
+   */
+  public int getPendingCount() {
+    return tasks.size() + frameCallbacks.size();
+  }
+
+  private void runFrame(long frameTimeNanos) {
+    for (int i = 0; i < frameCallbacks.size(); i++) {
+      runningFrameCallbacks.add(frameCallbacks.get(i));
+    }
+    frameCallbacks.clear();
+    inFrame = true;
+    try {
+      for (int i = 0; i < runningFrameCallbacks.size(); i++) {
+        final Choreographer.FrameCallback callback = runningFrameCallbacks.get(i);
+        if (null != callback) {
+          callback.doFrame(frameTimeNanos);
+        }
+      }
+    } finally {
+      inFrame = false;
+      runningFrameCallbacks.clear();
+    }
+  }
+
+  private Task obtain(Runnable runnable, long dueMillis) {
+    final Task task = recycled.isEmpty() ? new Task() : recycled.remove(recycled.size() - 1);
+    task.runnable = runnable;
+    task.dueMillis = dueMillis;
+    return task;
+  }
+
+  private void recycle(Task task) {
+    task.runnable = null;
+    recycled.add(task);
+  }
+
+  private static final class Task {
+    Runnable runnable;
+    long dueMillis;
+  }
+}
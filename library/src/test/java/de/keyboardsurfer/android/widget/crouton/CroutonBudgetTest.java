@@ -0,0 +1,279 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Shows a {@link Crouton} of each kind of {@link Style} and checks how much it costs to get it on
+ * screen: the views it builds, the memory allocated while building them, the measure passes of its
+ * parent and the time until it is laid out. The main looper is paused, so time only moves frame by
+ * frame.
+ * <p>
+ * The allocation budgets were measured under Robolectric 4.3.1 on JDK 8, without escape analysis
+ * as configured in the build, and have about 25% of headroom. The counts have none. They include what Robolectric allocates for the framework calls, so they are only
+ * meaningful for that setup; a budget that fails after a Robolectric upgrade needs to be measured
+ * again, not raised blindly.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class CroutonBudgetTest {
+  private static final long FRAME_MILLIS = 16;
+  private static final int MAX_FRAMES = 200;
+  // counts are exact, a crouton is laid out 44ms after it was displayed
+  private static final int MAX_HOST_MEASURES = 1;
+  private static final long MAX_MILLIS_TO_VISIBLE = 3 * FRAME_MILLIS;
+  private static final int BUILDS = 3;
+  // measured at 976, 1041, 977, 978 and 977 KiB
+  private static final long PLAIN_BYTES = 1220 * 1024;
+  private static final long IMAGE_BYTES = 1300 * 1024;
+  private static final long FONT_BYTES = 1220 * 1024;
+  private static final long TILED_BYTES = 1225 * 1024;
+  private static final long SHADOW_BYTES = 1220 * 1024;
+  /** A font from the test assets, so that the span loads it like an app would. */
+  private static final String FONT_NAME = "fonts/crouton-test.ttf";
+
+  private Activity activity;
+  private CountingFrameLayout host;
+  private Canvas canvas;
+  private com.sun.management.ThreadMXBean allocations;
+
+  @Before
+  public void setUp() {
+    activity = Robolectric.buildActivity(Activity.class).setup().get();
+    host = new CountingFrameLayout(activity);
+    activity.setContentView(host);
+    canvas = new Canvas(Bitmap.createBitmap(480, 800, Bitmap.Config.ARGB_8888));
+
+    final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+      allocations = (com.sun.management.ThreadMXBean) threads;
+    }
+    shadowOf(getMainLooper()).idle();
+  }
+
+  @After
+  public void tearDown() {
+    Crouton.cancelAllCroutons();
+    shadowOf(getMainLooper()).idle();
+  }
+
+  @Test
+  public void plainStyleStaysWithinBudget() {
+    assertWithinBudget(Style.INFO, 3, PLAIN_BYTES);
+  }
+
+  @Test
+  public void imageStyleStaysWithinBudget() {
+    assertWithinBudget(new Style.Builder()
+        .setBackgroundColorValue(Style.holoBlueLight)
+        .setImageResource(android.R.drawable.ic_dialog_info)
+        .build(), 4, IMAGE_BYTES);
+  }
+
+  @Test
+  public void customFontStyleStaysWithinBudget() {
+    assertWithinBudget(new Style.Builder()
+        .setBackgroundColorValue(Style.holoBlueLight)
+        .setFontName(FONT_NAME)
+        .build(), 3, FONT_BYTES);
+  }
+
+  @Test
+  public void tiledStyleStaysWithinBudget() {
+    assertWithinBudget(new Style.Builder()
+        .setBackgroundDrawable(android.R.drawable.ic_menu_add)
+        .setTileEnabled(true)
+        .build(), 3, TILED_BYTES);
+  }
+
+  @Test
+  public void shadowStyleStaysWithinBudget() {
+    assertWithinBudget(new Style.Builder()
+        .setBackgroundColorValue(Style.holoBlueLight)
+        .setTextShadowColor(android.R.color.black)
+        .setTextShadowRadius(2f)
+        .setTextShadowDx(1f)
+        .setTextShadowDy(1f)
+        .build(), 3, SHADOW_BYTES);
+  }
+
+  @Test
+  public void queuedCroutonReusesThePooledView() {
+    final Crouton first = Crouton.makeText(activity, "First", Style.INFO, host);
+    final Budget cold = new Budget(first);
+    first.show();
+    cold.awaitVisible();
+    final View firstView = first.getView();
+
+    final Crouton second = Crouton.makeText(activity, "Second", Style.INFO, host);
+    final Budget rebound = new Budget(second);
+    second.show();
+    first.hide();
+    rebound.awaitVisible();
+
+    assertSame("the pooled view of the first crouton is reused", firstView, second.getView());
+    rebound.assertWithinBudget();
+  }
+
+  /**
+   * Shows a first {@link Crouton} of the style to load its classes, resources and font, then
+   * checks the next ones against the budgets. The views are built a few times and the cheapest
+   * build counts, so that the lazy work of the test runtime does not end up in the budget.
+   */
+  private void assertWithinBudget(Style style, int expectedViews, long maxBuildBytes) {
+    final Crouton warmUp = Crouton.makeText(activity, "Warm up", style, host);
+    final Budget first = new Budget(warmUp);
+    warmUp.show();
+    first.awaitVisible();
+    Crouton.cancelAllCroutons();
+    shadowOf(getMainLooper()).idle();
+
+    Crouton crouton = null;
+    long buildBytes = Long.MAX_VALUE;
+    for (int i = 0; i < BUILDS; i++) {
+      crouton = Crouton.makeText(activity, "Budget", style, host);
+      final long before = allocatedBytes();
+      crouton.getView();
+      buildBytes = Math.min(buildBytes, allocatedBytes() - before);
+    }
+    final View view = crouton.getView();
+    final Budget budget = new Budget(crouton);
+    crouton.show();
+    budget.awaitVisible();
+
+    assertEquals(expectedViews, countViews(view));
+    budget.assertWithinBudget();
+    if (null != allocations) {
+      assertTrue("building the view allocated " + buildBytes + " bytes", buildBytes <= maxBuildBytes);
+    }
+  }
+
+  /**
+   * Moves the clock by one frame and draws the host. Views are not drawn on their own here, but
+   * animations only advance while they are drawn.
+   */
+  private void advanceFrame() {
+    shadowOf(getMainLooper()).idleFor(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    host.draw(canvas);
+  }
+
+  private long allocatedBytes() {
+    return null == allocations ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static int countViews(View view) {
+    int count = 1;
+    if (view instanceof ViewGroup) {
+      final ViewGroup group = (ViewGroup) view;
+      for (int i = 0; i < group.getChildCount(); i++) {
+        count += countViews(group.getChildAt(i));
+      }
+    }
+    return count;
+  }
+
+  /** Measures a {@link Crouton} from the moment it is displayed until it has been laid out. */
+  private final class Budget implements LifecycleCallback {
+    private final Crouton crouton;
+    private long displayedMillis = -1;
+    long millisToVisible;
+    int hostMeasures;
+
+    Budget(Crouton crouton) {
+      this.crouton = crouton;
+      crouton.setLifecycleCallback(this);
+    }
+
+    @Override
+    public void onDisplayed() {
+      displayedMillis = SystemClock.uptimeMillis();
+      host.measures = 0;
+    }
+
+    @Override
+    public void onRemoved() {
+    }
+
+    void awaitVisible() {
+      for (int i = 0; i < MAX_FRAMES; i++) {
+        advanceFrame();
+        if (displayedMillis >= 0 && crouton.isShowing() && crouton.getView().getHeight() > 0) {
+          millisToVisible = SystemClock.uptimeMillis() - displayedMillis;
+          hostMeasures = host.measures;
+          return;
+        }
+      }
+      fail("the crouton was not shown within " + MAX_FRAMES + " frames");
+    }
+
+    void assertWithinBudget() {
+      assertTrue("visible after " + millisToVisible + "ms", millisToVisible <= MAX_MILLIS_TO_VISIBLE);
+      assertTrue("host measured " + hostMeasures + " times", hostMeasures <= MAX_HOST_MEASURES);
+    }
+  }
+
+  /** Counts its measure passes. */
+  private static final class CountingFrameLayout extends FrameLayout {
+    int measures;
+
+    CountingFrameLayout(Context context) {
+      super(context);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+      measures++;
+      super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * Views are only drawn by the test, with the time of the paused clock, so that animations
+     * see it move.
+     */
+    @Override
+    public long getDrawingTime() {
+      return SystemClock.uptimeMillis();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+  @Test
+  public void countsValuesInTheBucketOfTheirUpperBound() {
+    final Histogram histogram = new Histogram(10, 20);
+
+    histogram.record(10);
+    histogram.record(11);
+    histogram.record(21);
+
+    assertEquals(3, histogram.getBucketCount());
+    assertEquals(1, histogram.getCount(0));
+    assertEquals(1, histogram.getCount(1));
+    assertEquals(1, histogram.getCount(2));
+    assertEquals(Long.MAX_VALUE, histogram.getUpperBound(2));
+    assertEquals(3, histogram.getTotalCount());
+    assertEquals(42, histogram.getSum());
+    assertEquals(21, histogram.getMax());
+  }
+
+  @Test
+  public void percentilesAreTheUpperBoundOfTheirBucket() {
+    final Histogram histogram = new Histogram(10, 20, 50);
+    for (int i = 1; i <= 90; i++) {
+      histogram.record(5);
+    }
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(30);
+    }
+
+    assertEquals(10, histogram.getPercentile(50));
+    assertEquals(10, histogram.getPercentile(90));
+    // capped by the highest recorded value
+    assertEquals(30, histogram.getPercentile(99));
+  }
+
+  @Test
+  public void percentileOfAnEmptyHistogramIsZero() {
+    assertEquals(0, new Histogram(10).getPercentile(50));
+  }
+
+  @Test
+  public void copyToTakesASnapshot() {
+    final Histogram histogram = new Histogram(10);
+    histogram.record(5);
+    final Histogram snapshot = new Histogram(histogram);
+
+    histogram.copyTo(snapshot);
+    histogram.record(50);
+
+    assertEquals(1, snapshot.getTotalCount());
+    assertEquals(5, snapshot.getMax());
+    assertEquals(2, histogram.getTotalCount());
+  }
+
+  @Test
+  public void resetClearsAllCounts() {
+    final Histogram histogram = new Histogram(10);
+    histogram.record(50);
+
+    histogram.reset();
+
+    assertEquals(0, histogram.getTotalCount());
+    assertEquals(0, histogram.getCount(1));
+    assertEquals(0, histogram.getSum());
+    assertEquals(0, histogram.getMax());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsDescendingBounds() {
+    new Histogram(20, 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsHistogramsWithOtherBuckets() {
+    new Histogram(10).copyTo(new Histogram(10, 20));
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.view.Choreographer;
+import de.keyboardsurfer.android.widget.crouton.core.DisplaySequencer;
+import de.keyboardsurfer.android.widget.crouton.core.SchedulingQueue;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualTimeSchedulerTest {
+  private static final String[] NAMES = {"first", "second", "third"};
+
+  private final VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+  private final List<String> runs = new ArrayList<String>();
+
+  @Test
+  public void runsDueTasksInTheOrderOfTheirDueTime() {
+    scheduler.execute(new Record("late"), 200);
+    scheduler.execute(new Record("early"), 100);
+    scheduler.execute(new Record("alsoEarly"), 100);
+
+    scheduler.advanceBy(99);
+    assertTrue(runs.isEmpty());
+
+    scheduler.advanceBy(101);
+    assertEquals(Arrays.asList("early@100", "alsoEarly@100", "late@200"), runs);
+    assertEquals(200, scheduler.uptimeMillis());
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void runsTasksScheduledByDueTasks() {
+    final Runnable rescheduling = new Runnable() {
+      @Override
+      public void run() {
+        runs.add("rescheduling@" + scheduler.uptimeMillis());
+        scheduler.execute(new Record("follower"), 50);
+      }
+    };
+    scheduler.execute(rescheduling, 100);
+
+    scheduler.advanceBy(150);
+
+    assertEquals(Arrays.asList("rescheduling@100", "follower@150"), runs);
+  }
+
+  @Test
+  public void cancelRemovesAllPendingRunsOfATask() {
+    final Record task = new Record("task");
+    scheduler.execute(task, 100);
+    scheduler.execute(task, 200);
+
+    scheduler.cancel(task);
+    scheduler.advanceBy(200);
+
+    assertTrue(runs.isEmpty());
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void runsFrameCallbacksAtTheNextFrame() {
+    scheduler.advanceBy(5);
+    scheduler.postFrameCallback(new Choreographer.FrameCallback() {
+      @Override
+      public void doFrame(long frameTimeNanos) {
+        runs.add("frame@" + frameTimeNanos / 1000000);
+        // posted during a frame, so it waits for the next one
+        scheduler.postFrameCallback(new FrameRecord("next"));
+      }
+    });
+    scheduler.execute(new Record("task"), 11);
+
+    scheduler.advanceBy(10);
+    assertTrue(runs.isEmpty());
+
+    scheduler.advanceBy(17);
+    assertEquals(Arrays.asList("task@16", "frame@16", "next@32"), runs);
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void removeFrameCallbackDropsAllPendingRuns() {
+    final FrameRecord callback = new FrameRecord("frame");
+    scheduler.postFrameCallback(callback);
+    scheduler.postFrameCallback(callback);
+
+    scheduler.removeFrameCallback(callback);
+    scheduler.advanceBy(VirtualTimeScheduler.FRAME_INTERVAL_MILLIS);
+
+    assertTrue(runs.isEmpty());
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void timeCannotGoBack() {
+    scheduler.advanceBy(-1);
+  }
+
+  @Test
+  public void reusesItsTasks() {
+    final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+    final Runnable task = new Runnable() {
+      @Override
+      public void run() {
+      }
+    };
+    for (int i = 0; i < 10000; i++) {
+      scheduler.execute(task, 10);
+      scheduler.advanceBy(10);
+    }
+
+    final long threadId = Thread.currentThread().getId();
+    final long before = allocations.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < 10000; i++) {
+      scheduler.execute(task, 10);
+      scheduler.advanceBy(10);
+    }
+    final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+    // leaves room for the bookkeeping of the measurement itself
+    assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+  }
+
+  @Test
+  public void runsAnHourOfDisplaysThroughTheSequencer() {
+    final Queue queue = new Queue();
+    final Display display = new Display(queue);
+    final DisplaySequencer<String> sequencer = new DisplaySequencer<String>(queue, scheduler, scheduler, display);
+    display.sequencer = sequencer;
+    queue.addAll(Arrays.asList(NAMES));
+
+    sequencer.dispatch();
+    scheduler.advanceBy(60 * 60 * 1000);
+
+    // one every display and exit time, starting at 0
+    assertEquals(60 * 60 * 1000 / (Display.DISPLAY_MILLIS + Display.EXIT_MILLIS) + 1, display.shown.size());
+    for (int i = 0; i < display.shown.size(); i++) {
+      assertEquals(NAMES[i % NAMES.length], display.shown.get(i));
+    }
+    assertEquals(60 * 60 * 1000, scheduler.uptimeMillis());
+  }
+
+  private final class Record implements Runnable {
+    private final String name;
+
+    Record(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void run() {
+      runs.add(name + "@" + scheduler.uptimeMillis());
+    }
+  }
+
+  private final class FrameRecord implements Choreographer.FrameCallback {
+    private final String name;
+
+    FrameRecord(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      runs.add(name + "@" + frameTimeNanos / 1000000);
+    }
+  }
+
+  private static final class Queue extends SchedulingQueue<String> {
+    @Override
+    protected Object hostOf(String element) {
+      return null;
+    }
+  }
+
+  /** Shows elements right away and queues them again once they have expired. */
+  private static final class Display implements DisplaySequencer.Display<String> {
+    static final long DISPLAY_MILLIS = 3000;
+    static final long EXIT_MILLIS = 400;
+
+    final List<String> shown = new ArrayList<String>();
+    final Queue queue;
+    DisplaySequencer<String> sequencer;
+    String showing;
+
+    Display(Queue queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public boolean isStale(String element) {
+      return false;
+    }
+
+    @Override
+    public boolean isPaused(String element) {
+      return false;
+    }
+
+    @Override
+    public boolean isShowing(String element) {
+      return element == showing;
+    }
+
+    @Override
+    public void show(String element) {
+      shown.add(element);
+      showing = element;
+      sequencer.onEntered(element, DISPLAY_MILLIS);
+    }
+
+    @Override
+    public void discard(String element) {
+    }
+
+    @Override
+    public void expire(String element) {
+      showing = null;
+      queue.poll();
+      queue.add(element);
+      sequencer.onExited(element, EXIT_MILLIS);
+    }
+
+    @Override
+    public void onExitFinished(String element) {
+    }
+
+    @Override
+    public void onIdle() {
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.FrameLayout;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Runs {@link Crouton}s through the {@link Manager} with a {@link VirtualTimeScheduler}. The paused
+ * main looper is moved in step with the virtual time, since layout and drawing still run on it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class VirtualTimeTrafficTest {
+  private static final int DISPLAY_MILLIS = 1000;
+  private static final Configuration CONFIGURATION = new Configuration.Builder()
+      .setDuration(DISPLAY_MILLIS)
+      .build();
+  private static final int WARM_UP_SHOWS = 5;
+  private static final int MEASURED_SHOWS = 10;
+  // measured at 67544 bytes under Robolectric 4.3.1 on JDK 8, with about 25% of headroom
+  private static final long MAX_BYTES_PER_SHOW = 84 * 1024;
+
+  private final VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+  private final List<String> events = new ArrayList<String>();
+  private Activity activity;
+  private FrameLayout host;
+  private Canvas canvas;
+  private com.sun.management.ThreadMXBean allocations;
+  /** What has been allocated while the virtual time was advanced, i.e. by the steps of the {@link Manager}. */
+  private long schedulerBytes;
+
+  @Before
+  public void setUp() {
+    activity = Robolectric.buildActivity(Activity.class).setup().get();
+    host = new DrawingTimeFrameLayout(activity);
+    activity.setContentView(host);
+    canvas = new Canvas(Bitmap.createBitmap(480, 800, Bitmap.Config.ARGB_8888));
+    shadowOf(getMainLooper()).idle();
+    Crouton.setScheduler(scheduler);
+
+    final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+      allocations = (com.sun.management.ThreadMXBean) threads;
+    }
+  }
+
+  @After
+  public void tearDown() {
+    Crouton.cancelAllCroutons();
+    Crouton.setScheduler(new MainLooperScheduler());
+    shadowOf(getMainLooper()).idle();
+  }
+
+  @Test
+  public void framesOnlyRunWithTheVirtualTime() {
+    final Crouton crouton = show("only");
+
+    // the looper alone does not attach it, the attaching frame is virtual
+    shadowOf(getMainLooper()).idleFor(DISPLAY_MILLIS, TimeUnit.MILLISECONDS);
+    assertFalse(crouton.isShowing());
+
+    advance(VirtualTimeScheduler.FRAME_INTERVAL_MILLIS);
+    assertTrue(crouton.isShowing());
+  }
+
+  @Test
+  public void displaysQueuedCroutonsOneAfterAnother() {
+    final String[] names = {"first", "second", "third", "fourth", "fifth"};
+    for (String name : names) {
+      show(name);
+    }
+
+    final long start = scheduler.uptimeMillis();
+    for (int i = 0; (i < 1000) && (events.size() < 2 * names.length); i++) {
+      advance(VirtualTimeScheduler.FRAME_INTERVAL_MILLIS);
+    }
+
+    final List<String> expected = new ArrayList<String>();
+    for (String name : names) {
+      expected.add("displayed " + name);
+      expected.add("removed " + name);
+    }
+    assertEquals(expected, events);
+    // each one stays for its duration, the exits only add a few frames
+    final long elapsed = scheduler.uptimeMillis() - start;
+    assertTrue("took " + elapsed + "ms", elapsed >= names.length * DISPLAY_MILLIS);
+    assertTrue("took " + elapsed + "ms", elapsed < names.length * (DISPLAY_MILLIS + 1000));
+    assertEquals(0, host.getChildCount());
+  }
+
+  /**
+   * Shows {@link Crouton}s back to back and measures what is allocated while the virtual time
+   * moves, i.e. by the steps of the {@link Manager} from the display of one {@link Crouton} to that
+   * of the next. Layout and drawing run on the looper and are not counted. Once warm, the pooled
+   * view is rebound, so what remains is the work of the view system the steps call into under
+   * Robolectric. The median show counts, since Robolectric regenerates its proxies now and then.
+   */
+  @Test
+  public void steadyStateShowAllocatesWithinBudget() {
+    final Relay relay = new Relay();
+    for (int i = 0; i < WARM_UP_SHOWS + MEASURED_SHOWS + 2; i++) {
+      final Crouton crouton = Crouton.makeText(activity, "Steady", Style.INFO, host).setConfiguration(CONFIGURATION);
+      crouton.setLifecycleCallback(relay);
+      relay.croutons.add(crouton);
+    }
+    // one is queued behind the displayed one at all times, so the view pool is never cleared
+    relay.showNext();
+    relay.showNext();
+    awaitRemovals(relay, WARM_UP_SHOWS);
+    final View pooledView = relay.croutons.get(WARM_UP_SHOWS).getView();
+
+    final long[] perShow = new long[MEASURED_SHOWS];
+    for (int i = 0; i < MEASURED_SHOWS; i++) {
+      schedulerBytes = 0;
+      awaitRemovals(relay, WARM_UP_SHOWS + i + 1);
+      perShow[i] = schedulerBytes;
+    }
+    Arrays.sort(perShow);
+    final long median = perShow[MEASURED_SHOWS / 2];
+
+    assertSame(pooledView, relay.croutons.get(WARM_UP_SHOWS + MEASURED_SHOWS).getView());
+    if (null != allocations) {
+      assertTrue("a show allocated " + median + " bytes", median <= MAX_BYTES_PER_SHOW);
+    }
+  }
+
+  private void awaitRemovals(Relay relay, int removals) {
+    for (int i = 0; (i < 1000) && (relay.removed < removals); i++) {
+      advance(VirtualTimeScheduler.FRAME_INTERVAL_MILLIS);
+    }
+    assertEquals(removals, relay.removed);
+  }
+
+  private long allocatedBytes() {
+    return null == allocations ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private Crouton show(final String name) {
+    final Crouton crouton = Crouton.makeText(activity, name, Style.INFO, host).setConfiguration(CONFIGURATION);
+    crouton.setLifecycleCallback(new LifecycleCallback() {
+      @Override
+      public void onDisplayed() {
+        events.add("displayed " + name);
+      }
+
+      @Override
+      public void onRemoved() {
+        events.add("removed " + name);
+      }
+    });
+    crouton.show();
+    return crouton;
+  }
+
+  /** Moves the virtual time and the looper by the same amount and draws, so animations advance. */
+  private void advance(long millis) {
+    final long before = allocatedBytes();
+    scheduler.advanceBy(millis);
+    schedulerBytes += allocatedBytes() - before;
+    shadowOf(getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+    host.draw(canvas);
+  }
+
+  /** Shows the next {@link Crouton} whenever one has been removed. */
+  private static final class Relay implements LifecycleCallback {
+    final List<Crouton> croutons = new ArrayList<Crouton>();
+    int shown;
+    int removed;
+
+    void showNext() {
+      croutons.get(shown++).show();
+    }
+
+    @Override
+    public void onDisplayed() {
+      /* no-op */
+    }
+
+    @Override
+    public void onRemoved() {
+      removed++;
+      showNext();
+    }
+  }
+
+  /** Draws with the time of the paused clock, so that animations see it move. */
+  private static final class DrawingTimeFrameLayout extends FrameLayout {
+    DrawingTimeFrameLayout(Activity activity) {
+      super(activity);
+    }
+
+    @Override
+    public long getDrawingTime() {
+      return SystemClock.uptimeMillis();
+    }
+  }
+}
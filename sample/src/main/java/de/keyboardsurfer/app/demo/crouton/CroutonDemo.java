@@ -32,7 +32,7 @@ public class CroutonDemo extends FragmentActivity {
 
     enum PageInfo {
 
-        Crouton(R.string.crouton), About(R.string.about);
+        Crouton(R.string.crouton), Stress(R.string.stress), About(R.string.about);
 
         int titleResId;
 
@@ -66,6 +66,8 @@ public class CroutonDemo extends FragmentActivity {
 
             if (PageInfo.Crouton.ordinal() == position) {
                 return new CroutonFragment();
+            } else if (PageInfo.Stress.ordinal() == position) {
+                return new StressFragment();
             } else if (PageInfo.About.ordinal() == position) {
                 return new AboutFragment();
             }
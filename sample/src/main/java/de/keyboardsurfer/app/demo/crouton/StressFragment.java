@@ -0,0 +1,278 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.app.demo.crouton;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.support.v4.app.Fragment;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.Spinner;
+import android.widget.TextView;
+import de.keyboardsurfer.android.widget.crouton.Configuration;
+import de.keyboardsurfer.android.widget.crouton.Crouton;
+import de.keyboardsurfer.android.widget.crouton.CroutonMetrics;
+import de.keyboardsurfer.android.widget.crouton.ExtendedLifecycleCallback;
+import de.keyboardsurfer.android.widget.crouton.Histogram;
+import de.keyboardsurfer.android.widget.crouton.Style;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fires bursts of {@link Crouton}s at a configurable rate and shows live queue, latency, frame and
+ * heap statistics on top, to check library changes under load.
+ */
+public class StressFragment extends Fragment implements View.OnClickListener, ExtendedLifecycleCallback {
+
+  private static final int DEFAULT_RATE = 10;
+  private static final int DEFAULT_COUNT = 100;
+  private static final long HUD_INTERVAL_MILLIS = 250;
+  private static final int TARGET_ACTIVITY = 0;
+  private static final int TARGET_VIEW_GROUP = 1;
+  private static final Configuration STRESS_CONFIGURATION = new Configuration.Builder()
+          .setDuration(1000)
+          .build();
+
+  private final Handler handler = new Handler();
+  private final CroutonMetrics metrics = new CroutonMetrics();
+  private final CroutonMetrics snapshot = new CroutonMetrics();
+  private final List<Style> styles = new ArrayList<Style>();
+  private final Runnable fire = new Runnable() {
+    @Override
+    public void run() {
+      fireCrouton();
+      if (fired < count) {
+        handler.postDelayed(this, intervalMillis);
+      } else {
+        setRunning(false);
+      }
+    }
+  };
+  private final Runnable updateHud = new Runnable() {
+    @Override
+    public void run() {
+      updateHud();
+      handler.postDelayed(this, HUD_INTERVAL_MILLIS);
+    }
+  };
+
+  private EditText rateEdit;
+  private EditText countEdit;
+  private CheckBox alert;
+  private CheckBox confirm;
+  private CheckBox info;
+  private CheckBox image;
+  private CheckBox tiled;
+  private CheckBox shadow;
+  private Spinner targetSpinner;
+  private Button stressButton;
+  private ViewGroup stressViewGroup;
+  private TextView hud;
+  private boolean running;
+  private long intervalMillis;
+  private int count;
+  private int fired;
+  private int queued;
+  private int maxQueued;
+
+  @Override
+  public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+    return inflater.inflate(R.layout.stress, null);
+  }
+
+  @Override
+  public void onViewCreated(View view, Bundle savedInstanceState) {
+    super.onViewCreated(view, savedInstanceState);
+    rateEdit = (EditText) view.findViewById(R.id.edit_text_rate);
+    countEdit = (EditText) view.findViewById(R.id.edit_text_count);
+    alert = (CheckBox) view.findViewById(R.id.stress_alert);
+    confirm = (CheckBox) view.findViewById(R.id.stress_confirm);
+    info = (CheckBox) view.findViewById(R.id.stress_info);
+    image = (CheckBox) view.findViewById(R.id.stress_image);
+    tiled = (CheckBox) view.findViewById(R.id.stress_tiled);
+    shadow = (CheckBox) view.findViewById(R.id.stress_shadow);
+    targetSpinner = (Spinner) view.findViewById(R.id.spinner_target);
+    stressViewGroup = (ViewGroup) view.findViewById(R.id.stress_view_group);
+    hud = (TextView) view.findViewById(R.id.stress_hud);
+    stressButton = (Button) view.findViewById(R.id.button_stress);
+    stressButton.setOnClickListener(this);
+  }
+
+  @Override
+  public void onResume() {
+    super.onResume();
+    Crouton.setMetricsSink(metrics);
+    handler.post(updateHud);
+  }
+
+  @Override
+  public void onPause() {
+    setRunning(false);
+    handler.removeCallbacks(updateHud);
+    Crouton.setMetricsSink(null);
+    super.onPause();
+  }
+
+  @Override
+  public void onClick(View view) {
+    if (running) {
+      setRunning(false);
+      Crouton.clearCroutonsForActivity(getActivity());
+    } else {
+      startBurst();
+    }
+  }
+
+  private void startBurst() {
+    collectStyles();
+    if (styles.isEmpty()) {
+      Crouton.showText(getActivity(), R.string.warning_style, Style.ALERT);
+      return;
+    }
+    final int requestedCount = getNumber(countEdit, DEFAULT_COUNT);
+    if (requestedCount <= 0) {
+      // the first crouton is fired before the count is checked
+      Crouton.showText(getActivity(), R.string.warning_count, Style.ALERT);
+      return;
+    }
+    intervalMillis = 1000 / Math.max(1, getNumber(rateEdit, DEFAULT_RATE));
+    count = requestedCount;
+    // Croutons left over from a previous burst would skew the count, so they are cleared and
+    // counting starts over.
+    Crouton.clearCroutonsForActivity(getActivity());
+    fired = 0;
+    queued = 0;
+    maxQueued = 0;
+    metrics.reset();
+    setRunning(true);
+    handler.post(fire);
+  }
+
+  private void setRunning(boolean running) {
+    this.running = running;
+    if (!running) {
+      handler.removeCallbacks(fire);
+    }
+    stressButton.setText(running ? R.string.button_stress_stop : R.string.button_stress_start);
+  }
+
+  private void collectStyles() {
+    styles.clear();
+    if (alert.isChecked()) {
+      styles.add(Style.ALERT);
+    }
+    if (confirm.isChecked()) {
+      styles.add(Style.CONFIRM);
+    }
+    if (info.isChecked()) {
+      styles.add(Style.INFO);
+    }
+    if (image.isChecked()) {
+      styles.add(new Style.Builder().setBackgroundColorValue(Style.holoBlueLight)
+              .setImageResource(R.drawable.ic_launcher).build());
+    }
+    if (tiled.isChecked()) {
+      styles.add(new Style.Builder().setBackgroundDrawable(R.drawable.ic_launcher).setTileEnabled(true).build());
+    }
+    if (shadow.isChecked()) {
+      styles.add(new Style.Builder().setBackgroundColorValue(Style.holoGreenLight)
+              .setTextShadowColor(android.R.color.black).setTextShadowRadius(2f).setTextShadowDx(1f)
+              .setTextShadowDy(1f).build());
+    }
+  }
+
+  private void fireCrouton() {
+    final Style style = styles.get(fired % styles.size());
+    final String text = getString(R.string.stress_text, fired);
+    final int target = targetSpinner.getSelectedItemPosition();
+    final boolean inViewGroup = (TARGET_VIEW_GROUP == target)
+            || ((TARGET_ACTIVITY != target) && (1 == fired % 2));
+    final Crouton crouton;
+    if (inViewGroup) {
+      crouton = Crouton.makeText(getActivity(), text, style, stressViewGroup);
+    } else {
+      crouton = Crouton.makeText(getActivity(), text, style);
+    }
+    crouton.setLifecycleCallback(this);
+    crouton.setConfiguration(STRESS_CONFIGURATION).show();
+    fired++;
+  }
+
+  private void updateHud() {
+    metrics.snapshotTo(snapshot);
+    final Runtime runtime = Runtime.getRuntime();
+    final long usedKb = (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+    final Histogram displayLatency = snapshot.getDisplayLatencyMillis();
+    hud.setText(getString(R.string.stress_hud, queued, maxQueued, fired, count,
+            displayLatency.getPercentile(50), displayLatency.getPercentile(90), displayLatency.getPercentile(99),
+            snapshot.getFrameDrops().getSum(), snapshot.getDroppedCount(), snapshot.getLayoutTimeoutCount(), usedKb,
+            runtime.maxMemory() / 1024));
+  }
+
+  private static int getNumber(EditText edit, int defaultValue) {
+    final String value = edit.getText().toString().trim();
+    if (TextUtils.isEmpty(value)) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      // e.g. a number that is too large
+      return defaultValue;
+    }
+  }
+
+  @Override
+  public void onQueued(long timestampNanos) {
+    queued++;
+    maxQueued = Math.max(maxQueued, queued);
+  }
+
+  @Override
+  public void onRemoved(long timestampNanos, RemovalReason reason) {
+    queued--;
+  }
+
+  @Override
+  public void onDisplayed() {
+    /* no-op */
+  }
+
+  @Override
+  public void onRemoved() {
+    /* no-op */
+  }
+
+  @Override
+  public void onAttached(long timestampNanos) {
+    /* no-op */
+  }
+
+  @Override
+  public void onEnterAnimationFinished(long timestampNanos) {
+    /* no-op */
+  }
+
+  @Override
+  public void onExitStarted(long timestampNanos, RemovalReason reason) {
+    /* no-op */
+  }
+}
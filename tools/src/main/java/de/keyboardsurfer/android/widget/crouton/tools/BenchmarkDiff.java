@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files in CSV format and fails if a benchmark got slower than allowed.
+ * <p/>
+ * Usage: <code>BenchmarkDiff baseline.csv results.csv [threshold percent]</code>. Benchmarks are
+ * matched by name and parameters; throughput has to stay above and times below the baseline by the
+ * threshold, 10% by default. Exits with <code>1</code> on a regression.
+ */
+public final class BenchmarkDiff {
+  private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+  private BenchmarkDiff() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if ((args.length < 2) || (args.length > 3)) {
+      System.err.println("Usage: BenchmarkDiff <baseline.csv> <results.csv> [threshold percent]");
+      System.exit(2);
+    }
+    final File baselineFile = new File(args[0]);
+    if (!baselineFile.exists()) {
+      System.err.println("No baseline at " + baselineFile + ", copy a results file there to create one");
+      System.exit(2);
+    }
+    final double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+    final int regressions = compare(baselineFile, new File(args[1]), threshold, System.out);
+    if (regressions > 0) {
+      System.out.println(regressions + " benchmarks regressed by more than " + threshold + "%");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Prints the change of every benchmark in the results against the baseline.
+   *
+   * @return The number of benchmarks that regressed by more than the threshold.
+   */
+  static int compare(File baselineFile, File resultsFile, double threshold, PrintStream out) throws IOException {
+    final Map<String, Result> baseline = read(baselineFile);
+    final Map<String, Result> results = read(resultsFile);
+
+    int regressions = 0;
+    for (Map.Entry<String, Result> entry : results.entrySet()) {
+      final Result result = entry.getValue();
+      final Result reference = baseline.get(entry.getKey());
+      if (null == reference) {
+        out.println(String.format(Locale.US, "  new   %-60s %12.3f %s", entry.getKey(), result.score,
+            result.unit));
+        continue;
+      }
+      // Positive changes are improvements, for throughput as well as for time per operation.
+      double change = (result.score - reference.score) / reference.score * 100;
+      if (!result.isThroughput()) {
+        change = -change;
+      }
+      final boolean regressed = change < -threshold;
+      if (regressed) {
+        regressions++;
+      }
+      out.println(String.format(Locale.US, "%s %-60s %12.3f -> %12.3f %s (%+.1f%%)",
+          regressed ? "REGRESSED" : "  ok     ", entry.getKey(), reference.score, result.score, result.unit,
+          change));
+    }
+    return regressions;
+  }
+
+  private static Map<String, Result> read(File file) throws IOException {
+    final Map<String, Result> results = new LinkedHashMap<String, Result>();
+    final BufferedReader reader = new BufferedReader(new FileReader(file));
+    try {
+      final List<String> header = split(reader.readLine());
+      final int benchmark = header.indexOf("Benchmark");
+      final int mode = header.indexOf("Mode");
+      final int score = header.indexOf("Score");
+      final int unit = header.indexOf("Unit");
+      if ((benchmark < 0) || (mode < 0) || (score < 0) || (unit < 0)) {
+        throw new IOException(file + " is not a JMH result file in CSV format");
+      }
+
+      String line;
+      while (null != (line = reader.readLine())) {
+        final List<String> columns = split(line);
+        if (columns.size() != header.size()) {
+          continue;
+        }
+        final StringBuilder key = new StringBuilder(columns.get(benchmark));
+        for (int i = 0; i < header.size(); i++) {
+          if (header.get(i).startsWith("Param: ")) {
+            key.append(' ').append(header.get(i).substring(7)).append('=').append(columns.get(i));
+          }
+        }
+        results.put(key.toString(), new Result(columns.get(mode), Double.parseDouble(columns.get(score)),
+            columns.get(unit)));
+      }
+    } finally {
+      reader.close();
+    }
+    return results;
+  }
+
+  /** Splits a CSV line, removing the quotes around the values. */
+  private static List<String> split(String line) {
+    final List<String> values = new ArrayList<String>();
+    if (null == line) {
+      return values;
+    }
+    final StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      final char c = line.charAt(i);
+      if ('"' == c) {
+        quoted = !quoted;
+      } else if ((',' == c) && !quoted) {
+        values.add(value.toString());
+        value.setLength(0);
+      } else {
+        value.append(c);
+      }
+    }
+    values.add(value.toString());
+    return values;
+  }
+
+  private static final class Result {
+    final String mode;
+    final double score;
+    final String unit;
+
+    Result(String mode, double score, String unit) {
+      this.mode = mode;
+      this.score = score;
+      this.unit = unit;
+    }
+
+    boolean isThroughput() {
+      return "thrpt".equals(mode);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The events read from a binary log written by the library's <code>EventRecorder</code>, oldest
+ * first.
+ * <p/>
+ * The format and the event types have to be kept in sync with <code>EventRecorder</code> and
+ * <code>EventLog</code> of the library.
+ */
+public final class EventLogFile {
+  static final int MAGIC = 0x4352544e;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 32;
+  static final int RECORD_BYTES = 24;
+
+  private static final String[] TYPE_NAMES = {
+      "QUEUED", "HELD", "DISPLAY", "DEFERRED", "ATTACHED", "LAID_OUT", "ANIMATED", "LAYOUT_TIMEOUT",
+      "REMOVED", "REBOUND", "DISCARDED", "PAUSED", "RESUMED"
+  };
+
+  static final int QUEUED = 0;
+  static final int HELD = 1;
+  static final int DISPLAY = 2;
+  static final int ATTACHED = 4;
+  static final int LAID_OUT = 5;
+  static final int ANIMATED = 6;
+  static final int REMOVED = 8;
+  static final int DISCARDED = 10;
+
+  private final long written;
+  private final long[] timestamps;
+  private final int[] ids;
+  private final int[] hostHashes;
+  private final int[] types;
+  private final int[] queueDepths;
+
+  private EventLogFile(long written, int size) {
+    this.written = written;
+    timestamps = new long[size];
+    ids = new int[size];
+    hostHashes = new int[size];
+    types = new int[size];
+    queueDepths = new int[size];
+  }
+
+  /**
+   * Reads a binary log, putting its events in order if it has wrapped around.
+   *
+   * @param file
+   *   The log pulled from the device.
+   *
+   * @return The events of the log.
+   *
+   * @throws IOException
+   *   If the file could not be read or is not a log of a supported version.
+   */
+  public static EventLogFile read(File file) throws IOException {
+    final RandomAccessFile input = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = input.getChannel();
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if ((buffer.limit() < HEADER_BYTES) || (buffer.getInt(0) != MAGIC)) {
+        throw new IOException(file + " is not a crouton event log");
+      }
+      if ((buffer.getInt(4) != VERSION) || (buffer.getInt(8) != RECORD_BYTES)) {
+        throw new IOException("Unsupported log version " + buffer.getInt(4));
+      }
+      final int capacity = buffer.getInt(12);
+      final long written = buffer.getLong(16);
+      if (buffer.limit() < HEADER_BYTES + (long) capacity * RECORD_BYTES) {
+        throw new IOException(file + " is truncated");
+      }
+
+      final int size = (int) Math.min(written, capacity);
+      final EventLogFile log = new EventLogFile(written, size);
+      for (int i = 0; i < size; i++) {
+        final int offset = HEADER_BYTES + (int) ((written - size + i) % capacity) * RECORD_BYTES;
+        log.timestamps[i] = buffer.getLong(offset);
+        log.ids[i] = buffer.getInt(offset + 8);
+        log.hostHashes[i] = buffer.getInt(offset + 12);
+        log.types[i] = buffer.getInt(offset + 16);
+        log.queueDepths[i] = buffer.getInt(offset + 20);
+      }
+      return log;
+    } finally {
+      input.close();
+    }
+  }
+
+  /** @return The name of an event type. */
+  public static String typeName(int type) {
+    return (type >= 0) && (type < TYPE_NAMES.length) ? TYPE_NAMES[type] : "UNKNOWN(" + type + ")";
+  }
+
+  /** @return The number of events in this log. */
+  public int size() {
+    return timestamps.length;
+  }
+
+  /** @return The number of events ever written, including the overwritten ones. */
+  public long getWritten() {
+    return written;
+  }
+
+  /** @return The {@link System#nanoTime()} of the event. */
+  public long getTimestamp(int index) {
+    return timestamps[index];
+  }
+
+  public int getCroutonId(int index) {
+    return ids[index];
+  }
+
+  public int getHostHash(int index) {
+    return hostHashes[index];
+  }
+
+  public int getType(int index) {
+    return types[index];
+  }
+
+  public int getQueueDepth(int index) {
+    return queueDepths[index];
+  }
+}
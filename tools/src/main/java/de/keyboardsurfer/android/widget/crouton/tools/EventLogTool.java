@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns a binary crouton event log into a timeline and latency statistics.
+ * <p/>
+ * Usage: <code>EventLogTool [--stats] crouton-events.bin</code>, where the log has been pulled
+ * from the cache directory of the app, e.g. with
+ * <code>adb exec-out run-as &lt;package&gt; cat cache/crouton-events.bin &gt; crouton-events.bin</code>.
+ * With <code>--stats</code> only the statistics are printed.
+ */
+public final class EventLogTool {
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  /** Time from being queued until being handed to display. */
+  private final List<Long> queueWaits = new ArrayList<Long>();
+  /** Time from being queued until the in animation started or the view was laid out. */
+  private final List<Long> displayLatencies = new ArrayList<Long>();
+  /** Time from being attached until being removed. */
+  private final List<Long> onScreenTimes = new ArrayList<Long>();
+  /** Timestamps of the current lifetime per crouton id: queued, attached, shown. */
+  private final Map<Integer, long[]> lifetimes = new HashMap<Integer, long[]>();
+  private final int[] typeCounts = new int[16];
+
+  private EventLogTool() {
+  }
+
+  public static void main(String[] args) {
+    final boolean statsOnly = (args.length == 2) && "--stats".equals(args[0]);
+    if ((args.length != 1) && !statsOnly) {
+      System.err.println("Usage: EventLogTool [--stats] <crouton-events.bin>");
+      System.exit(2);
+    }
+
+    final EventLogFile log;
+    try {
+      log = EventLogFile.read(new File(args[args.length - 1]));
+    } catch (IOException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+      return;
+    }
+
+    final EventLogTool tool = new EventLogTool();
+    tool.analyze(log);
+    if (!statsOnly) {
+      printTimeline(log, System.out);
+      System.out.println();
+    }
+    tool.printStatistics(log, System.out);
+  }
+
+  private void analyze(EventLogFile log) {
+    for (int i = 0; i < log.size(); i++) {
+      final int type = log.getType(i);
+      final long timestamp = log.getTimestamp(i);
+      if ((type >= 0) && (type < typeCounts.length)) {
+        typeCounts[type]++;
+      }
+
+      long[] lifetime = lifetimes.get(log.getCroutonId(i));
+      if ((EventLogFile.QUEUED == type) || (EventLogFile.HELD == type) || (null == lifetime)) {
+        // Ids start over with every process, so queueing starts a new lifetime.
+        lifetime = new long[3];
+        lifetimes.put(log.getCroutonId(i), lifetime);
+      }
+      switch (type) {
+        case EventLogFile.QUEUED:
+        case EventLogFile.HELD:
+          lifetime[0] = timestamp;
+          break;
+        case EventLogFile.DISPLAY:
+          if (0 != lifetime[0]) {
+            queueWaits.add(timestamp - lifetime[0]);
+          }
+          break;
+        case EventLogFile.ATTACHED:
+          lifetime[1] = timestamp;
+          break;
+        case EventLogFile.LAID_OUT:
+        case EventLogFile.ANIMATED:
+          if ((0 != lifetime[0]) && (0 == lifetime[2])) {
+            displayLatencies.add(timestamp - lifetime[0]);
+          }
+          lifetime[2] = timestamp;
+          break;
+        case EventLogFile.REMOVED:
+          if (0 != lifetime[1]) {
+            onScreenTimes.add(timestamp - lifetime[1]);
+          }
+          lifetimes.remove(log.getCroutonId(i));
+          break;
+        case EventLogFile.DISCARDED:
+          lifetimes.remove(log.getCroutonId(i));
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private static void printTimeline(EventLogFile log, PrintStream out) {
+    if (0 == log.size()) {
+      return;
+    }
+    long previous = log.getTimestamp(0);
+    for (int i = 0; i < log.size(); i++) {
+      final long timestamp = log.getTimestamp(i);
+      // A jump back in time marks a reboot of the device.
+      if (timestamp < previous) {
+        out.println("--- clock reset ---");
+      }
+      out.println(String.format(Locale.US, "%12.3f ms  +%9.3f  #%-6d %-14s host=%08x depth=%d",
+          (timestamp - log.getTimestamp(0)) / NANOS_PER_MILLI,
+          Math.max(0, timestamp - previous) / NANOS_PER_MILLI, log.getCroutonId(i),
+          EventLogFile.typeName(log.getType(i)), log.getHostHash(i), log.getQueueDepth(i)));
+      previous = timestamp;
+    }
+  }
+
+  private void printStatistics(EventLogFile log, PrintStream out) {
+    out.println(String.format(Locale.US, "%d events (%d written, %d overwritten)", log.size(),
+        log.getWritten(), log.getWritten() - log.size()));
+    for (int type = 0; type < typeCounts.length; type++) {
+      if (0 != typeCounts[type]) {
+        out.println(String.format(Locale.US, "  %-14s %d", EventLogFile.typeName(type), typeCounts[type]));
+      }
+    }
+    out.println();
+    out.println(String.format(Locale.US, "%-16s %6s %9s %9s %9s %9s %9s", "latency (ms)", "count", "min",
+        "p50", "p90", "p99", "max"));
+    printLatencies("queue wait", queueWaits, out);
+    printLatencies("display", displayLatencies, out);
+    printLatencies("on screen", onScreenTimes, out);
+  }
+
+  private static void printLatencies(String name, List<Long> latencies, PrintStream out) {
+    if (latencies.isEmpty()) {
+      out.println(String.format(Locale.US, "%-16s %6d", name, 0));
+      return;
+    }
+    Collections.sort(latencies);
+    out.println(String.format(Locale.US, "%-16s %6d %9.3f %9.3f %9.3f %9.3f %9.3f", name, latencies.size(),
+        latencies.get(0) / NANOS_PER_MILLI, percentile(latencies, 50) / NANOS_PER_MILLI,
+        percentile(latencies, 90) / NANOS_PER_MILLI, percentile(latencies, 99) / NANOS_PER_MILLI,
+        latencies.get(latencies.size() - 1) / NANOS_PER_MILLI));
+  }
+
+  /** @return The nearest-rank percentile of sorted values. */
+  private static long percentile(List<Long> sorted, int percent) {
+    final int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+    return sorted.get(Math.max(0, rank - 1));
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BenchmarkDiffTest {
+  private static final String HEADER =
+      "\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\",\"Unit\",\"Param: depth\"";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+  @Test
+  public void acceptsChangesWithinTheThreshold() throws IOException {
+    final File baseline = jmhResults("baseline.csv", row("dispatch", "thrpt", 1000, "10"));
+    final File results = jmhResults("results.csv", row("dispatch", "thrpt", 950, "10"));
+
+    assertEquals(0, compare(baseline, results));
+    assertTrue(output.toString().contains("-5.0%"));
+  }
+
+  @Test
+  public void reportsThroughputBelowTheThreshold() throws IOException {
+    final File baseline = jmhResults("baseline.csv", row("dispatch", "thrpt", 1000, "10"));
+    final File results = jmhResults("results.csv", row("dispatch", "thrpt", 850, "10"));
+
+    assertEquals(1, compare(baseline, results));
+    assertTrue(output.toString().contains("REGRESSED"));
+  }
+
+  @Test
+  public void reportsTimesAboveTheThreshold() throws IOException {
+    final File baseline = jmhResults("baseline.csv",
+        row("dispatch", "avgt", 100, "10"), row("cancel", "avgt", 100, "10"));
+    final File results = jmhResults("results.csv", row("dispatch", "avgt", 120, "10"), row("cancel", "avgt", 50, "10"));
+
+    // only the slower one, a shorter time is an improvement
+    assertEquals(1, compare(baseline, results));
+  }
+
+  @Test
+  public void matchesBenchmarksByTheirParameters() throws IOException {
+    final File baseline = jmhResults("baseline.csv",
+        row("dispatch", "thrpt", 1000, "10"), row("dispatch", "thrpt", 10, "1000"));
+    final File results = jmhResults("results.csv",
+        row("dispatch", "thrpt", 1000, "10"), row("dispatch", "thrpt", 10, "1000"));
+
+    assertEquals(0, compare(baseline, results));
+  }
+
+  @Test
+  public void listsNewBenchmarksWithoutFailing() throws IOException {
+    final File baseline = jmhResults("baseline.csv", row("dispatch", "thrpt", 1000, "10"));
+    final File results = jmhResults("results.csv",
+        row("dispatch", "thrpt", 1000, "10"), row("enqueue", "thrpt", 1, "10"));
+
+    assertEquals(0, compare(baseline, results));
+    assertTrue(output.toString().contains("new"));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsFilesThatAreNotJmhResults() throws IOException {
+    final File baseline = write("baseline.csv", "a,b,c");
+    final File results = jmhResults("results.csv", row("dispatch", "thrpt", 1000, "10"));
+
+    compare(baseline, results);
+  }
+
+  private int compare(File baseline, File results) throws IOException {
+    return BenchmarkDiff.compare(baseline, results, 10, new PrintStream(output, true));
+  }
+
+  private static String row(String benchmark, String mode, double score, String depth) {
+    return "\"de.keyboardsurfer.android.widget.crouton.core.SchedulingBenchmark." + benchmark + "\",\"" + mode
+        + "\",1,5," + score + ",1.5,\"ops/ms\"," + depth;
+  }
+
+  private File jmhResults(String name, String... rows) throws IOException {
+    final String[] lines = new String[rows.length + 1];
+    lines[0] = HEADER;
+    System.arraycopy(rows, 0, lines, 1, rows.length);
+    return write(name, lines);
+  }
+
+  private File write(String name, String... lines) throws IOException {
+    final File file = folder.newFile(name);
+    final FileWriter writer = new FileWriter(file);
+    try {
+      for (String line : lines) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+}
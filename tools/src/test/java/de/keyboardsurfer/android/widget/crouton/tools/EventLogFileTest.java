@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventLogFileTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readsTheEventsOfALogThatHasNotWrapped() throws IOException {
+    final File file = writeLog(EventLogFile.MAGIC, EventLogFile.VERSION, 4, 2);
+
+    final EventLogFile log = EventLogFile.read(file);
+
+    assertEquals(2, log.size());
+    assertEquals(2, log.getWritten());
+    assertEquals(1000, log.getTimestamp(0));
+    assertEquals(0, log.getCroutonId(0));
+    assertEquals(EventLogFile.QUEUED, log.getType(0));
+    assertEquals(1001, log.getTimestamp(1));
+    assertEquals(1, log.getCroutonId(1));
+    assertEquals(42, log.getHostHash(1));
+    assertEquals(EventLogFile.HELD, log.getType(1));
+    assertEquals(1, log.getQueueDepth(1));
+  }
+
+  @Test
+  public void putsTheEventsOfAWrappedLogInOrder() throws IOException {
+    final File file = writeLog(EventLogFile.MAGIC, EventLogFile.VERSION, 3, 5);
+
+    final EventLogFile log = EventLogFile.read(file);
+
+    // the first two events have been overwritten
+    assertEquals(3, log.size());
+    assertEquals(5, log.getWritten());
+    for (int i = 0; i < log.size(); i++) {
+      assertEquals(1002 + i, log.getTimestamp(i));
+      assertEquals(2 + i, log.getCroutonId(i));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    EventLogFile.read(writeLog(0x12345678, EventLogFile.VERSION, 3, 1));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherVersions() throws IOException {
+    EventLogFile.read(writeLog(EventLogFile.MAGIC, EventLogFile.VERSION + 1, 3, 1));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsTruncatedLogs() throws IOException {
+    final File file = writeLog(EventLogFile.MAGIC, EventLogFile.VERSION, 3, 1);
+    final RandomAccessFile output = new RandomAccessFile(file, "rw");
+    try {
+      output.setLength(file.length() - 1);
+    } finally {
+      output.close();
+    }
+
+    EventLogFile.read(file);
+  }
+
+  @Test
+  public void namesEventTypes() {
+    assertEquals("DISPLAY", EventLogFile.typeName(EventLogFile.DISPLAY));
+    assertEquals("UNKNOWN(99)", EventLogFile.typeName(99));
+  }
+
+  /**
+   * Writes a log in the format of the library's <code>EventRecorder</code>, in which event
+   * <code>n</code> has the timestamp <code>1000 + n</code>, the id and queue depth <code>n</code>
+   * and the type <code>n % 2</code>.
+   */
+  private File writeLog(int magic, int version, int capacity, long written) throws IOException {
+    final File file = folder.newFile();
+    final RandomAccessFile output = new RandomAccessFile(file, "rw");
+    try {
+      output.setLength(EventLogFile.HEADER_BYTES + capacity * EventLogFile.RECORD_BYTES);
+      output.writeInt(magic);
+      output.writeInt(version);
+      output.writeInt(EventLogFile.RECORD_BYTES);
+      output.writeInt(capacity);
+      output.writeLong(written);
+      for (int n = 0; n < written; n++) {
+        output.seek(EventLogFile.HEADER_BYTES + (n % capacity) * EventLogFile.RECORD_BYTES);
+        output.writeLong(1000 + n);
+        output.writeInt(n);
+        output.writeInt(42);
+        output.writeInt(n % 2);
+        output.writeInt(n);
+      }
+    } finally {
+      output.close();
+    }
+    return file;
+  }
+}